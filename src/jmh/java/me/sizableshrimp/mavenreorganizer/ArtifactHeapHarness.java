@@ -0,0 +1,81 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.data.Artifact;
+import me.sizableshrimp.mavenreorganizer.data.ArtifactIndex;
+import me.sizableshrimp.mavenreorganizer.data.Repo;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Measures the heap held by every artifact of a folder, and the bytes allocated building their output paths,
+ * once with artifacts that each hold their own coordinate strings as made by {@link Artifact#createFromPath(Path, Path)},
+ * and once with artifacts sharing the coordinates of an {@link ArtifactIndex} as made during a run.
+ * <p>
+ * Not a JMH benchmark, since it measures a single pass over a tree far larger than a benchmark could set up on every fork.
+ * Usage: {@code <folder>}, such as the releases folder of {@code SyntheticRepository <root> 1000 50 34 0.2 16}, which holds about 10M files.
+ * Run it with a heap large enough for the unshared artifacts, such as {@code -Xmx16g}.
+ */
+public class ArtifactHeapHarness {
+    private static final Path OUTPUT = Paths.get("output");
+    private static final Repo REPO = Repo.create("harness");
+
+    public static void main(String[] args) throws IOException {
+        Path folder = Paths.get(args[0]);
+
+        long baseline = usedHeap();
+        List<Artifact> unshared = new ArrayList<>();
+        try (Stream<Path> walker = Files.walk(folder)) {
+            walker.filter(Files::isRegularFile).forEach(path -> {
+                Artifact artifact = Artifact.createFromPath(folder, path);
+                if (artifact != null)
+                    unshared.add(artifact);
+            });
+        }
+        report("Unshared", unshared, baseline);
+        unshared.clear();
+
+        baseline = usedHeap();
+        List<Artifact> indexed = new ArrayList<>();
+        ArtifactIndex index = new ArtifactIndex();
+        Files.walkFileTree(folder, new ArtifactVisitor(folder, index, new RunMetrics(), indexed::addAll));
+        report("Indexed", indexed, baseline);
+        System.out.println("Index holds " + indexed.stream().map(artifact -> artifact.coordinates().artifact()).distinct().count() + " artifacts and "
+                + indexed.stream().map(Artifact::coordinates).distinct().count() + " versions");
+    }
+
+    private static void report(String name, List<Artifact> artifacts, long baseline) {
+        long retained = usedHeap() - baseline;
+
+        // Builds the paths every file needs while being processed, like MavenReorganizer#processArtifact does
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedStart = threads.getCurrentThreadAllocatedBytes();
+        long hash = 0;
+        for (Artifact artifact : artifacts) {
+            hash += REPO.getMetadataPath(OUTPUT, artifact).hashCode();
+            hash += REPO.getPath(OUTPUT, artifact).hashCode();
+            hash += artifact.getRelativePath().hashCode();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedStart;
+
+        System.out.printf(Locale.ROOT, "%s: %d artifacts, %.1f MiB retained (%.1f bytes each), %.1f MiB allocated building paths (%.1f bytes each) [%d]%n",
+                name, artifacts.size(), retained / 1048576.0, (double) retained / Math.max(artifacts.size(), 1),
+                allocated / 1048576.0, (double) allocated / Math.max(artifacts.size(), 1), hash & 1);
+    }
+
+    private static long usedHeap() {
+        // A few rounds, since one collection does not always clear everything that became unreachable
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,74 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Copies every jar of a synthetic releases folder into an output folder on the same filesystem, once per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CopyBenchmark {
+    @Param({"copy", "transfer", "hardlink"})
+    public String linkMode;
+    @Param({"65536", "4194304"})
+    public int fileSize;
+    private Path root;
+    private Path releases;
+    private ArtifactCopier copier;
+    private final List<Path> inputs = new ArrayList<>();
+    private final List<Path> outputs = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        this.root = Files.createTempDirectory("copy-benchmark");
+        SyntheticRepository repository = new SyntheticRepository(4, 4, 4, 0, this.fileSize, 42);
+        repository.generate(this.root);
+        this.releases = repository.releases(this.root);
+        this.copier = new ArtifactCopier(LinkMode.byName(this.linkMode));
+        Path output = this.root.resolve("output");
+
+        try (Stream<Path> walker = Files.walk(this.releases)) {
+            for (Path input : walker.filter(path -> path.toString().endsWith(".jar")).toList()) {
+                Path outputPath = output.resolve(this.releases.relativize(input));
+                Files.createDirectories(outputPath.getParent());
+                this.inputs.add(input);
+                this.outputs.add(outputPath);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticRepository.delete(this.root);
+    }
+
+    @Benchmark
+    public void copy() throws IOException {
+        for (int i = 0; i < this.inputs.size(); i++) {
+            this.copier.copy(this.releases, this.inputs.get(i), this.outputs.get(i));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MetadataBenchmark {
+    @Param({"10", "500"})
+    public int versions;
+    private Path root;
+    private byte[] metadataBytes;
+    private Metadata metadata;
+
+    @Setup
+    public void setup() throws IOException, XmlPullParserException {
+        this.root = Files.createTempDirectory("metadata-benchmark");
+        SyntheticRepository repository = new SyntheticRepository(1, 1, this.versions, 0.1, 1, 42);
+        repository.generate(this.root);
+
+        Path metadataPath = repository.releases(this.root).resolve("net/minecraftforge/group0/artifact0/maven-metadata.xml");
+        this.metadataBytes = Files.readAllBytes(metadataPath);
+        this.metadata = MetadataIO.read(metadataPath);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticRepository.delete(this.root);
+    }
+
+    @Benchmark
+    public Metadata read() throws IOException, XmlPullParserException {
+        return MetadataIO.read(new ByteArrayInputStream(this.metadataBytes));
+    }
+
+    @Benchmark
+    public Metadata readXpp3() throws IOException, XmlPullParserException {
+        return new MetadataXpp3Reader().read(new ByteArrayInputStream(this.metadataBytes));
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(this.metadataBytes.length);
+        MetadataIO.write(out, this.metadata);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeXpp3() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(this.metadataBytes.length);
+        new MetadataXpp3Writer().write(out, this.metadata);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] roundTrip() throws IOException, XmlPullParserException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(this.metadataBytes.length);
+        MetadataIO.write(out, MetadataIO.read(new ByteArrayInputStream(this.metadataBytes)));
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,102 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import com.google.common.hash.Hashing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the resume check of an unchanged output, for each tier that can decide it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResumeBenchmark {
+    @Param({"mtime", "sidecar", "content"})
+    public String tier;
+    @Param({"4096", "1048576"})
+    public int fileSize;
+    private Path root;
+    private MavenReorganizer reorganizer;
+    private final List<Path> inputs = new ArrayList<>();
+    private final List<Path> outputs = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        this.root = Files.createTempDirectory("resume-benchmark");
+        SyntheticRepository repository = new SyntheticRepository(8, 4, 4, 0, this.fileSize, 42);
+        repository.generate(this.root);
+        Path releases = repository.releases(this.root);
+        Path output = this.root.resolve("output");
+        this.reorganizer = new MavenReorganizer(releases, repository.proxy(this.root), output, new ReorganizerOptions(false, true, 1, 1, LinkMode.COPY, OutputFormat.DIRECTORY, false, false, false, 0, null, 0, 0, null));
+
+        List<Path> files;
+        try (Stream<Path> walker = Files.walk(releases)) {
+            files = walker.filter(Files::isRegularFile).toList();
+        }
+
+        for (Path input : files) {
+            Path outputPath = output.resolve(releases.relativize(input));
+            Files.createDirectories(outputPath.getParent());
+            Files.copy(input, outputPath, StandardCopyOption.COPY_ATTRIBUTES);
+
+            if (input.toString().endsWith(".jar")) {
+                this.inputs.add(input);
+                this.outputs.add(outputPath);
+            }
+        }
+
+        if (!this.tier.equals("mtime")) {
+            for (Path outputPath : this.outputs) {
+                Files.setLastModifiedTime(outputPath, FileTime.fromMillis(0));
+                if (this.tier.equals("content")) {
+                    Files.delete(Checksums.getSidecarPath(outputPath, "sha1"));
+                    Files.delete(Checksums.getSidecarPath(outputPath, "md5"));
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticRepository.delete(this.root);
+    }
+
+    @Benchmark
+    public void shouldWrite(Blackhole blackhole) throws IOException {
+        for (int i = 0; i < this.inputs.size(); i++) {
+            blackhole.consume(this.reorganizer.shouldWrite(this.inputs.get(i), this.outputs.get(i)));
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public void readAllBytesMd5(Blackhole blackhole) throws IOException {
+        for (int i = 0; i < this.inputs.size(); i++) {
+            blackhole.consume(Hashing.md5().hashBytes(Files.readAllBytes(this.inputs.get(i))).equals(Hashing.md5().hashBytes(Files.readAllBytes(this.outputs.get(i)))));
+        }
+    }
+}
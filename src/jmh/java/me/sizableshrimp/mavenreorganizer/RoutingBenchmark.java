@@ -0,0 +1,132 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.data.Artifact;
+import me.sizableshrimp.mavenreorganizer.data.Repo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link RepoRouter} with the previous approach of looking up every parent of the artifact's relative path in a map,
+ * with the bundled routing rules plus a number of generated ones, and compares compiling the rules with loading them from the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RoutingBenchmark {
+    @Param({"0", "10000"})
+    public int extraRules;
+    private final Path output = Paths.get("output");
+    private RepoRouter router;
+    private final Map<Path, Repo> mapper = new HashMap<>();
+    private final List<Artifact> artifacts = new ArrayList<>();
+    private Path root;
+    private Path rulesFile;
+    private Path cachePath;
+
+    @Setup
+    public void setup() throws IOException {
+        StringBuilder rules = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream(RoutingRules.DEFAULT_RESOURCE), StandardCharsets.UTF_8))) {
+            reader.lines().forEach(line -> rules.append(line).append('\n'));
+        }
+        for (int i = 0; i < this.extraRules; i++) {
+            rules.append("releases generated").append(i % 50).append(" com.generated.group").append(i).append(":artifact").append(i).append('\n');
+        }
+
+        for (String line : rules.toString().split("\n")) {
+            String[] columns = line.split("\\s+");
+            if (line.startsWith("#") || columns.length != 3 || !columns[0].contains("releases"))
+                continue;
+
+            String[] pts = columns[2].split(":");
+            this.mapper.put(Paths.get(columns[2].replace(':', '.').replace('.', '/')), Repo.create(columns[1]));
+            if (pts.length == 3)
+                this.artifacts.add(new Artifact(pts[0], pts[1], pts[2], false, pts[1] + '-' + pts[2] + ".jar"));
+        }
+        this.router = RoutingRules.parse(new BufferedReader(new StringReader(rules.toString())), "benchmark").releases();
+
+        for (int i = 0; i < 250; i++) {
+            this.artifacts.add(new Artifact("net.minecraftforge.group" + i, "artifact" + i, "1." + i, false, "artifact" + i + "-1." + i + ".jar"));
+            this.artifacts.add(new Artifact("com.example.group" + i, "artifact" + i, "1." + i + "-SNAPSHOT", true, "artifact" + i + "-1." + i + "-SNAPSHOT.pom"));
+        }
+
+        this.root = Files.createTempDirectory("routing-benchmark");
+        this.rulesFile = this.root.resolve("routing_rules.txt");
+        Files.writeString(this.rulesFile, rules, StandardCharsets.UTF_8);
+        this.cachePath = this.root.resolve(RoutingRules.CACHE_FILE_NAME);
+        RoutingRules.load(this.rulesFile, this.cachePath);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticRepository.delete(this.root);
+    }
+
+    @Benchmark
+    public void repoRouter(Blackhole blackhole) {
+        for (Artifact artifact : this.artifacts) {
+            Repo repo = this.router.route(artifact);
+            if (repo != null) {
+                blackhole.consume(repo.getMetadataPath(this.output, artifact));
+                blackhole.consume(repo.getPath(this.output, artifact));
+            }
+        }
+    }
+
+    @Benchmark
+    public void parentPathLookup(Blackhole blackhole) {
+        for (Artifact artifact : this.artifacts) {
+            blackhole.consume(getOutputPath(artifact, true));
+            blackhole.consume(getOutputPath(artifact, false));
+        }
+    }
+
+    @Benchmark
+    public RoutingRules compileRules() throws IOException {
+        return RoutingRules.load(this.rulesFile, null);
+    }
+
+    @Benchmark
+    public RoutingRules loadCachedRules() throws IOException {
+        return RoutingRules.load(this.rulesFile, this.cachePath);
+    }
+
+    private Path getOutputPath(Artifact artifact, boolean metadata) {
+        Path parent = artifact.getRelativePath();
+        while (parent != null) {
+            Repo repo = this.mapper.get(parent);
+            if (repo != null)
+                return metadata ? repo.getMetadataPath(this.output, artifact) : repo.getPath(this.output, artifact);
+            parent = parent.getParent();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,108 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates {@code releases} and {@code proxy} folders shaped like the real repositories, for benchmarks.
+ * <p>
+ * Half of the groups are placed under {@code net/minecraftforge} (routed to the forge repo), a quarter under
+ * {@code org/spongepowered} (routed in both folders) and the rest under an unclaimed group.
+ * Every file gets {@code .sha1} and {@code .md5} sidecars and every artifact a valid {@code maven-metadata.xml}.
+ */
+public record SyntheticRepository(int groups, int artifactsPerGroup, int versionsPerArtifact, double snapshotRatio, int fileSize, long seed) {
+    public static final SyntheticRepository SMALL = new SyntheticRepository(20, 10, 10, 0.2, 1024, 42);
+
+    public Path releases(Path root) {
+        return root.resolve("releases");
+    }
+
+    public Path proxy(Path root) {
+        return root.resolve("proxy");
+    }
+
+    public void generate(Path root) throws IOException {
+        Random random = new Random(this.seed);
+        generate(releases(root), random);
+        generate(proxy(root), random);
+    }
+
+    private void generate(Path folder, Random random) throws IOException {
+        for (int g = 0; g < this.groups; g++) {
+            String groupId = switch (g % 4) {
+                case 0, 1 -> "net.minecraftforge.group" + g;
+                case 2 -> "org.spongepowered.group" + g;
+                default -> "com.example.group" + g;
+            };
+
+            for (int a = 0; a < this.artifactsPerGroup; a++) {
+                String artifactId = "artifact" + a;
+                Path artifactDir = folder.resolve(groupId.replace('.', '/')).resolve(artifactId);
+
+                List<String> versions = new ArrayList<>();
+                for (int v = 0; v < this.versionsPerArtifact; v++) {
+                    String version = "1." + v + (random.nextDouble() < this.snapshotRatio ? "-SNAPSHOT" : "");
+                    versions.add(version);
+
+                    Path versionDir = artifactDir.resolve(version);
+                    Files.createDirectories(versionDir);
+                    writeWithSidecars(versionDir.resolve(artifactId + '-' + version + ".jar"), randomBytes(random, this.fileSize));
+                    writeWithSidecars(versionDir.resolve(artifactId + '-' + version + ".pom"), randomBytes(random, Math.min(this.fileSize, 512)));
+                }
+
+                MetadataIO.write(artifactDir.resolve("maven-metadata.xml"), createMetadata(groupId, artifactId, versions));
+            }
+        }
+    }
+
+    private static Metadata createMetadata(String groupId, String artifactId, List<String> versions) {
+        Versioning versioning = new Versioning();
+        versioning.setVersions(new ArrayList<>(versions));
+        versioning.setLatest(versions.get(versions.size() - 1));
+        versions.stream().filter(v -> !v.endsWith("-SNAPSHOT")).reduce((first, second) -> second).ifPresent(versioning::setRelease);
+        versioning.setLastUpdated("20220101000000");
+
+        Metadata metadata = new Metadata();
+        metadata.setGroupId(groupId);
+        metadata.setArtifactId(artifactId);
+        metadata.setVersioning(versioning);
+        return metadata;
+    }
+
+    private static byte[] randomBytes(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void writeWithSidecars(Path path, byte[] bytes) throws IOException {
+        Files.write(path, bytes);
+        Files.writeString(Checksums.getSidecarPath(path, "sha1"), Hashing.sha1().hashBytes(bytes).toString());
+        Files.writeString(Checksums.getSidecarPath(path, "md5"), Hashing.md5().hashBytes(bytes).toString());
+    }
+
+    public static void delete(Path root) throws IOException {
+        MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    /**
+     * Usage: {@code <output folder> <groups> <artifacts per group> <versions per artifact> <snapshot ratio> <file size>}
+     */
+    public static void main(String[] args) throws IOException {
+        SyntheticRepository repository = new SyntheticRepository(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                Double.parseDouble(args[4]), Integer.parseInt(args[5]), 42);
+        repository.generate(Paths.get(args[0]));
+    }
+}
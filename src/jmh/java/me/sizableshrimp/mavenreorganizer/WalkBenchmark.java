@@ -0,0 +1,57 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.data.Artifact;
+import me.sizableshrimp.mavenreorganizer.data.ArtifactIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WalkBenchmark {
+    private Path root;
+    private Path releases;
+
+    @Setup
+    public void setup() throws IOException {
+        this.root = Files.createTempDirectory("walk-benchmark");
+        SyntheticRepository.SMALL.generate(this.root);
+        this.releases = SyntheticRepository.SMALL.releases(this.root);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticRepository.delete(this.root);
+    }
+
+    @Benchmark
+    public void createFromPath(Blackhole blackhole) throws IOException {
+        try (Stream<Path> walker = Files.walk(this.releases)) {
+            walker.filter(Files::isRegularFile).forEach(path -> blackhole.consume(Artifact.createFromPath(this.releases, path)));
+        }
+    }
+
+    @Benchmark
+    public void artifactVisitor(Blackhole blackhole) throws IOException {
+        Files.walkFileTree(this.releases, new ArtifactVisitor(this.releases, new ArtifactIndex(), new RunMetrics(), blackhole::consume));
+    }
+}
@@ -0,0 +1,206 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Places input files at their output path using the configured {@link LinkMode}.
+ * Once a mode turns out to be unsupported for a source folder, such as the output being on a different device,
+ * it is skipped for the rest of that folder. Reflinks start a process per file, so once they are unsupported they are skipped for the whole run.
+ * Any other error, such as a full disk or a file that cannot be read, fails that file like it would with a plain copy.
+ * <p>
+ * An existing output is always removed before it is written, since it can be a hardlink to the input left by an earlier run.
+ */
+public class ArtifactCopier {
+    private static final boolean WINDOWS = System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win");
+    // Error messages that mean the filesystem cannot do what the mode needs, rather than that something went wrong with the file
+    private static final List<String> UNSUPPORTED_REASONS = List.of(
+            "Invalid cross-device link",
+            "Operation not supported",
+            "Function not implemented",
+            "Inappropriate ioctl for device",
+            "The system cannot move the file to a different disk drive");
+    private final LinkMode linkMode;
+    // source folder -> modes that failed for it
+    private final Map<Path, Set<LinkMode>> unsupportedModes = new ConcurrentHashMap<>();
+    private volatile boolean reflinkUnsupported;
+
+    public ArtifactCopier(LinkMode linkMode) {
+        this.linkMode = linkMode;
+    }
+
+    public void copy(Path folderPath, Path inputPath, Path outputPath) throws IOException {
+        Set<LinkMode> unsupported = this.unsupportedModes.computeIfAbsent(folderPath, k -> ConcurrentHashMap.newKeySet());
+        LinkMode mode = this.linkMode;
+
+        while (mode != LinkMode.COPY) {
+            if (!unsupported.contains(mode) && !(mode == LinkMode.REFLINK && this.reflinkUnsupported)) {
+                try {
+                    copy(mode, inputPath, outputPath);
+                    return;
+                } catch (FileSystemException e) {
+                    if (!isUnsupported(e))
+                        throw e;
+                    fallBack(mode, folderPath, unsupported, e);
+                } catch (UnsupportedOperationException e) {
+                    fallBack(mode, folderPath, unsupported, e);
+                }
+            }
+            mode = mode.getFallback();
+        }
+
+        copy(LinkMode.COPY, inputPath, outputPath);
+    }
+
+    private void fallBack(LinkMode mode, Path folderPath, Set<LinkMode> unsupported, Exception e) {
+        if (mode == LinkMode.REFLINK) {
+            if (!this.reflinkUnsupported) {
+                this.reflinkUnsupported = true;
+                System.err.println("Falling back from " + mode.getName() + " to " + mode.getFallback().getName() + " for this run: " + e);
+            }
+        } else if (unsupported.add(mode)) {
+            System.err.println("Falling back from " + mode.getName() + " to " + mode.getFallback().getName() + " for " + folderPath + ": " + e);
+        }
+    }
+
+    private static boolean isUnsupported(FileSystemException e) {
+        String reason = e.getReason();
+        return reason != null && UNSUPPORTED_REASONS.stream().anyMatch(reason::contains);
+    }
+
+    /**
+     * Like {@link #copy(Path, Path, Path)}, but also hashes the input with the given hash functions in the same read.
+     * Copies stream the bytes through the hashers on their way to the output. Links never read the input,
+     * so for them it is read once to hash it and then linked.
+     *
+     * @return hash function name -> hash of the input
+     */
+    public Map<String, HashCode> copyHashing(Path folderPath, Path inputPath, Path outputPath, Map<String, HashFunction> hashFunctions) throws IOException {
+        if (this.linkMode == LinkMode.COPY || this.linkMode == LinkMode.TRANSFER) {
+            // The output could be a hardlink to the input from an earlier run, which must not be truncated
+            Files.deleteIfExists(outputPath);
+            // Read before the copy, which can update the access time
+            BasicFileAttributes inputAttributes = Files.readAttributes(inputPath, BasicFileAttributes.class);
+            MultiHashingOutputStream hashingOut;
+            try (OutputStream out = Files.newOutputStream(outputPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                hashingOut = new MultiHashingOutputStream(hashFunctions, out);
+                streamTo(inputPath, hashingOut);
+            }
+            copyAttributes(inputPath, inputAttributes, outputPath);
+            return hashingOut.hashes();
+        }
+
+        MultiHashingOutputStream hashingOut = new MultiHashingOutputStream(hashFunctions, OutputStream.nullOutputStream());
+        streamTo(inputPath, hashingOut);
+        copy(folderPath, inputPath, outputPath);
+        return hashingOut.hashes();
+    }
+
+    private static void streamTo(Path inputPath, OutputStream out) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(inputPath)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static void copy(LinkMode mode, Path inputPath, Path outputPath) throws IOException {
+        switch (mode) {
+            case COPY -> Files.copy(inputPath, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            case TRANSFER -> transfer(inputPath, outputPath);
+            case REFLINK -> reflink(inputPath, outputPath);
+            case HARDLINK -> hardlink(inputPath, outputPath);
+        }
+    }
+
+    private static void hardlink(Path inputPath, Path outputPath) throws IOException {
+        if (Files.exists(outputPath)) {
+            if (Files.isSameFile(inputPath, outputPath))
+                return;
+            Files.delete(outputPath);
+        }
+
+        Files.createLink(outputPath, inputPath);
+    }
+
+    private static void reflink(Path inputPath, Path outputPath) throws IOException {
+        if (WINDOWS)
+            throw new UnsupportedOperationException("Reflinks are not supported on Windows");
+
+        // cp writes into an existing destination, which could be a hardlink to the input
+        Files.deleteIfExists(outputPath);
+
+        // The JDK has no API for copy-on-write clones, so let coreutils do the FICLONE call
+        Process process;
+        try {
+            process = new ProcessBuilder("cp", "--reflink=always", "--preserve=timestamps", inputPath.toString(), outputPath.toString())
+                    .redirectErrorStream(true)
+                    .start();
+        } catch (IOException e) {
+            throw new UnsupportedOperationException("Could not start cp for reflinks", e);
+        }
+        try {
+            String processOutput = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                // Reported like the JDK reports errors of its own file operations, so unsupported clones are told apart from other errors
+                String reason = UNSUPPORTED_REASONS.stream().filter(processOutput::contains).findFirst()
+                        .orElse("cp --reflink exited with code " + exitCode + ": " + processOutput);
+                throw new FileSystemException(inputPath.toString(), outputPath.toString(), reason);
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for cp --reflink", e);
+        }
+    }
+
+    private static void transfer(Path inputPath, Path outputPath) throws IOException {
+        // The output could be a hardlink to the input from an earlier run, which must not be truncated
+        Files.deleteIfExists(outputPath);
+        BasicFileAttributes inputAttributes = Files.readAttributes(inputPath, BasicFileAttributes.class);
+        try (FileChannel in = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(outputPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0)
+                    throw new IOException("Could not transfer " + inputPath + " past byte " + position + " of " + size);
+                position += transferred;
+            }
+        }
+
+        copyAttributes(inputPath, inputAttributes, outputPath);
+    }
+
+    // Keeps the same attributes as Files.copy with COPY_ATTRIBUTES, resuming relies on the modified time
+    private static void copyAttributes(Path inputPath, BasicFileAttributes inputAttributes, Path outputPath) throws IOException {
+        PosixFileAttributeView posixView = Files.getFileAttributeView(inputPath, PosixFileAttributeView.class);
+        if (posixView != null)
+            Files.setPosixFilePermissions(outputPath, posixView.readAttributes().permissions());
+        Files.getFileAttributeView(outputPath, BasicFileAttributeView.class)
+                .setTimes(inputAttributes.lastModifiedTime(), inputAttributes.lastAccessTime(), null);
+    }
+}
@@ -0,0 +1,92 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.data.Artifact;
+import me.sizableshrimp.mavenreorganizer.data.ArtifactClassifier;
+import me.sizableshrimp.mavenreorganizer.data.ArtifactIndex;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Walks a maven folder and hands over the artifacts of each directory as soon as that directory has been fully visited.
+ * Only the directories currently being visited hold on to their artifacts, so memory use follows the depth of the tree rather than its size.
+ * <p>
+ * The time spent between the callbacks, which is the walker listing directories and reading attributes, is recorded as one walk per directory.
+ */
+public class ArtifactVisitor extends SimpleFileVisitor<Path> {
+    private final ArtifactClassifier classifier;
+    private final RunMetrics metrics;
+    private final Consumer<List<Artifact>> directoryConsumer;
+    private final Deque<List<Artifact>> openDirectories = new ArrayDeque<>();
+    // When the last callback handed control back to the walker
+    private long walkResumed = System.nanoTime();
+    private long walkNanos;
+
+    public ArtifactVisitor(Path folderPath, ArtifactIndex index, RunMetrics metrics, Consumer<List<Artifact>> directoryConsumer) {
+        this.classifier = new ArtifactClassifier(folderPath, index);
+        this.metrics = metrics;
+        this.directoryConsumer = directoryConsumer;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        pauseWalk();
+        this.classifier.enterDirectory(dir);
+        this.openDirectories.push(new ArrayList<>());
+        this.walkResumed = System.nanoTime();
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        long start = pauseWalk();
+        if (attrs.isRegularFile()) {
+            Artifact artifact = this.classifier.classify(file);
+            if (artifact != null)
+                this.openDirectories.element().add(artifact);
+            this.metrics.record(RunMetrics.Phase.CLASSIFY, start);
+            this.metrics.increment(RunMetrics.Counter.FILES);
+        }
+
+        this.walkResumed = System.nanoTime();
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        pauseWalk();
+        this.metrics.recordNanos(RunMetrics.Phase.WALK, this.walkNanos, 0);
+        this.walkNanos = 0;
+
+        this.classifier.exitDirectory();
+        List<Artifact> artifacts = this.openDirectories.pop();
+        if (exc != null)
+            throw exc;
+
+        // Handing over can wait for the copy threads, which is not part of the walk
+        if (!artifacts.isEmpty())
+            this.directoryConsumer.accept(artifacts);
+
+        this.walkResumed = System.nanoTime();
+        return FileVisitResult.CONTINUE;
+    }
+
+    /**
+     * Adds the time since the walker got control back to the walk time of the current directory.
+     *
+     * @return the current time
+     */
+    private long pauseWalk() {
+        long now = System.nanoTime();
+        this.walkNanos += now - this.walkResumed;
+        return now;
+    }
+}
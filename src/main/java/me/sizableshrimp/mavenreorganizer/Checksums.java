@@ -0,0 +1,40 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads the checksum sidecar files (such as {@code foo.jar.sha1}) that maven repositories keep next to each file.
+ */
+public class Checksums {
+    // Most trusted first
+    public static final List<String> SIDECAR_ALGORITHMS = List.of("sha256", "sha1", "md5");
+
+    public static Path getSidecarPath(Path path, String algorithm) {
+        return path.resolveSibling(path.getFileName().toString() + '.' + algorithm);
+    }
+
+    /**
+     * Returns the lowercase hex checksum stored in the sidecar of the given file for the given algorithm, or {@code null} if there is none.
+     * Some tools write {@code <checksum> <file name>}, so only the first token is used.
+     */
+    public static String readSidecar(Path path, String algorithm) throws IOException {
+        String content;
+        try {
+            content = Files.readString(getSidecarPath(path, algorithm), StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        int end = 0;
+        while (end < content.length() && !Character.isWhitespace(content.charAt(end)))
+            end++;
+
+        return end == 0 ? null : content.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+}
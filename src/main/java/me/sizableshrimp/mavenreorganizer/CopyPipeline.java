@@ -0,0 +1,114 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs artifact tasks on a fixed number of worker threads with a bounded number of tasks in flight.
+ * With a single thread, tasks are run directly on the submitting thread unless the pipeline is shared by several submitting threads.
+ * Tasks submitted with a key run one at a time in submission order with the other tasks of the same key.
+ * The first task failure stops any further tasks from starting and is rethrown from {@link #close()}.
+ */
+public class CopyPipeline implements AutoCloseable {
+    private static final int QUEUED_TASKS_PER_THREAD = 64;
+    private final ExecutorService executor;
+    // Sequential executors on top of the shared pool, tasks are assigned to them by key
+    private final Executor[] lanes;
+    private final Semaphore permits;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public CopyPipeline(int threads) {
+        this(threads, false);
+    }
+
+    /**
+     * @param sharedBySubmitters whether tasks are submitted from more than one thread at once,
+     * in which case a single thread is still a separate worker so that only one task runs at a time
+     */
+    public CopyPipeline(int threads, boolean sharedBySubmitters) {
+        if (threads <= 1 && !sharedBySubmitters) {
+            this.executor = null;
+            this.lanes = null;
+            this.permits = null;
+        } else {
+            threads = Math.max(threads, 1);
+            this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                    .setNameFormat("copy-%d")
+                    .setDaemon(true)
+                    .build());
+            this.lanes = new Executor[threads];
+            for (int i = 0; i < threads; i++) {
+                this.lanes[i] = MoreExecutors.newSequentialExecutor(this.executor);
+            }
+            this.permits = new Semaphore(threads * QUEUED_TASKS_PER_THREAD);
+        }
+    }
+
+    public void submit(Runnable task) {
+        submit(this.executor, task);
+    }
+
+    /**
+     * Like {@link #submit(Runnable)}, but the task never runs at the same time as or before an earlier task with the same key.
+     */
+    public void submit(int key, Runnable task) {
+        submit(this.lanes == null ? null : this.lanes[Math.floorMod(key, this.lanes.length)], task);
+    }
+
+    private void submit(Executor executor, Runnable task) {
+        rethrowFailure();
+
+        if (executor == null) {
+            task.run();
+            return;
+        }
+
+        this.permits.acquireUninterruptibly();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (this.failure.get() == null)
+                        task.run();
+                } catch (Throwable t) {
+                    this.failure.compareAndSet(null, t);
+                } finally {
+                    this.permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.executor != null) {
+            this.executor.shutdown();
+            try {
+                while (!this.executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    // Keep waiting, copies of large artifacts can take a while
+                }
+            } catch (InterruptedException e) {
+                this.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        rethrowFailure();
+    }
+
+    private void rethrowFailure() {
+        Throwable t = this.failure.get();
+        if (t != null)
+            MavenReorganizer.sneakyThrow(t);
+    }
+}
@@ -0,0 +1,38 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+
+import java.nio.file.Path;
+
+/**
+ * Remembers which output path content was first written to during a run, keyed by its sha1 checksum and size.
+ * The checksum has to be computed from the written content, since checksum files can be wrong.
+ * <p>
+ * The index holds at most a fixed number of entries and evicts the least recently used ones past that,
+ * so memory stays bounded on trees of any size. Evicted content is simply written again when it shows up later,
+ * as is content that several threads copy at the same time.
+ * Only output paths that are never rewritten within a run may be added, since the index cannot tell when a path changes.
+ */
+public class DedupIndex {
+    public static final int DEFAULT_MAXIMUM_SIZE = 1_000_000;
+    private final Cache<Key, Path> written;
+
+    public DedupIndex(int maximumSize) {
+        this.written = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * @return the output path identical content was already written to, or null if there is none
+     */
+    public Path get(byte[] sha1, long size) {
+        return this.written.getIfPresent(new Key(HashCode.fromBytes(sha1), size));
+    }
+
+    public void put(byte[] sha1, long size, Path outputPath) {
+        this.written.asMap().putIfAbsent(new Key(HashCode.fromBytes(sha1), size), outputPath);
+    }
+
+    private record Key(HashCode sha1, long size) {}
+}
@@ -0,0 +1,37 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import java.util.Locale;
+
+/**
+ * How artifacts are placed in the output directory.
+ * When a mode does not work for a file, the next mode in the chain {@code hardlink -> reflink -> transfer -> copy} is tried.
+ */
+public enum LinkMode {
+    COPY(null),
+    TRANSFER(COPY),
+    REFLINK(TRANSFER),
+    HARDLINK(REFLINK);
+
+    private final LinkMode fallback;
+
+    LinkMode(LinkMode fallback) {
+        this.fallback = fallback;
+    }
+
+    public LinkMode getFallback() {
+        return this.fallback;
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static LinkMode byName(String name) {
+        for (LinkMode mode : values()) {
+            if (mode.getName().equals(name))
+                return mode;
+        }
+
+        throw new IllegalArgumentException("Unknown link mode " + name);
+    }
+}
@@ -4,6 +4,7 @@ import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
+import me.sizableshrimp.mavenreorganizer.plan.PlanApplier;
 
 import java.io.File;
 import java.io.IOException;
@@ -11,11 +12,25 @@ import java.io.IOException;
 public class Main {
     public static void main(String[] args) throws IOException {
         OptionParser parser = new OptionParser();
-        OptionSpec<File> releasesO = parser.accepts("releases", "Base \"releases\" directory to separate out").withRequiredArg().ofType(File.class).required();
-        OptionSpec<File> proxyO = parser.accepts("proxy", "\"proxy\" directory that proxies other mavens").withRequiredArg().ofType(File.class).required();
+        OptionSpec<File> applyO = parser.accepts("apply", "Plan file made with --plan to carry out on the output directory, instead of reorganizing the source folders").withRequiredArg().ofType(File.class);
+        OptionSpec<File> releasesO = parser.accepts("releases", "Base \"releases\" directory to separate out").requiredUnless("apply").withRequiredArg().ofType(File.class);
+        OptionSpec<File> proxyO = parser.accepts("proxy", "\"proxy\" directory that proxies other mavens").requiredUnless("apply").withRequiredArg().ofType(File.class);
         OptionSpec<File> outputO = parser.accepts("output", "Output directory to place reorganized files in").withRequiredArg().ofType(File.class).required();
         OptionSpec<Void> simulateO = parser.accepts("simulate", "When this flag is present, the program will parse all the data but not actually copy/add any files");
         OptionSpec<Void> resumeO = parser.accepts("resume", "When this flag is present, the program will only copy files that are missing or whose hash do not match in the output directory");
+        OptionSpec<Integer> threadsO = parser.accepts("threads", "Number of threads used to copy artifacts").withRequiredArg().ofType(Integer.class).defaultsTo(1);
+        OptionSpec<Integer> walkersO = parser.accepts("walkers", "Number of threads used to walk the releases and proxy directories. With more than 1, both are walked at the same time, split by top level group directory").withRequiredArg().ofType(Integer.class).defaultsTo(1);
+        OptionSpec<String> linkModeO = parser.accepts("link-mode", "How artifacts are placed in the output directory: copy, hardlink, reflink or transfer. Falls back to the next mode when one is not possible").withRequiredArg().defaultsTo("copy");
+        OptionSpec<String> outputFormatO = parser.accepts("output-format", "How the reorganized repos are written: directory, or tar for one sequentially written archive per output repo").withRequiredArg().defaultsTo("directory");
+        OptionSpec<File> routingRulesO = parser.accepts("routing-rules", "Rules file deciding which output repo artifacts are routed to, in the format of the bundled routing_rules.txt. Uses the bundled rules when absent").withRequiredArg().ofType(File.class);
+        OptionSpec<Integer> watchO = parser.accepts("watch", "When this flag is present, the program keeps running after the first pass and reorganizes new deployments as they come in. Optionally takes the milliseconds to wait for a burst of changes to settle. Every directory of both source folders is watched, so on Linux fs.inotify.max_user_watches has to allow that many").withOptionalArg().ofType(Integer.class).defaultsTo(TreeWatcher.DEFAULT_DEBOUNCE_MILLIS);
+        OptionSpec<Integer> reportIntervalO = parser.accepts("report-interval", "Seconds between live progress summaries, 0 to disable them. A JSON report is always written to the output directory").withRequiredArg().ofType(Integer.class).defaultsTo(0);
+        OptionSpec<Void> incrementalO = parser.accepts("incremental", "When this flag is present, a manifest is kept in the output directory and only files that changed since the last run are processed");
+        OptionSpec<Void> verifyO = parser.accepts("verify", "When this flag is present, copied artifacts are checked against their checksum files while being copied, and the ones that do not match are quarantined");
+        OptionSpec<Integer> dedupO = parser.accepts("dedup", "When this flag is present, files with the same checksum as a file already written in this run are hard linked to it instead of copied. Optionally takes the maximum number of checksums remembered at once").withOptionalArg().ofType(Integer.class).defaultsTo(DedupIndex.DEFAULT_MAXIMUM_SIZE);
+        OptionSpec<File> planO = parser.accepts("plan", "Plan file to record every copy, skip, delete and metadata write in, instead of changing the output directory. The source folders have to be at the same paths wherever the plan is applied").withRequiredArg().ofType(File.class);
+        OptionSpec<String> shardO = parser.accepts("shard", "With --apply, only applies the share of the plan for worker i out of N, given as i/N with i starting at 0. Every worker has to run with the same N").withRequiredArg().defaultsTo("0/1");
+        OptionSpec<Void> metadataCacheO = parser.accepts("metadata-cache", "When this flag is present, parsed source metadata is cached in the output directory so unchanged metadata is not parsed again on the next run");
 
         OptionSet options;
         try {
@@ -28,11 +43,59 @@ public class Main {
             return;
         }
 
+        File apply = options.valueOf(applyO);
+        File plan = options.valueOf(planO);
         File releases = options.valueOf(releasesO);
         File proxy = options.valueOf(proxyO);
         File output = options.valueOf(outputO);
         boolean simulate = options.has(simulateO);
         boolean resume = options.has(resumeO);
+        int threads = options.valueOf(threadsO);
+        int walkers = options.valueOf(walkersO);
+        LinkMode linkMode = LinkMode.byName(options.valueOf(linkModeO));
+        OutputFormat outputFormat = OutputFormat.byName(options.valueOf(outputFormatO));
+        boolean incremental = options.has(incrementalO);
+        boolean verify = options.has(verifyO);
+        boolean metadataCache = options.has(metadataCacheO);
+        int dedupIndexSize = options.has(dedupO) ? options.valueOf(dedupO) : 0;
+        File routingRules = options.valueOf(routingRulesO);
+        int watchDebounce = options.has(watchO) ? options.valueOf(watchO) : 0;
+        int reportInterval = options.valueOf(reportIntervalO);
+
+        if (threads < 1)
+            throw new IllegalArgumentException("Threads must be at least 1");
+
+        if (apply != null) {
+            String[] shard = options.valueOf(shardO).split("/");
+            int shardIndex;
+            int shards;
+            try {
+                if (shard.length != 2)
+                    throw new NumberFormatException();
+                shardIndex = Integer.parseInt(shard[0]);
+                shards = Integer.parseInt(shard[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Shard must be given as i/N, such as 0/4");
+            }
+
+            if (shards < 1 || shardIndex < 0 || shardIndex >= shards)
+                throw new IllegalArgumentException("Shard index must be at least 0 and less than the number of shards");
+
+            if (!apply.isFile())
+                throw new IllegalArgumentException("Plan to apply must be an existing file");
+
+            if (!simulate && !output.isDirectory() && !output.mkdirs())
+                throw new IllegalArgumentException("Could not make output directory with path " + output.getAbsolutePath());
+
+            new PlanApplier(apply.toPath(), output.toPath(), linkMode, threads, shardIndex, shards, simulate).run();
+            return;
+        }
+
+        if (options.has(shardO))
+            throw new IllegalArgumentException("Shard can only be used with apply");
+
+        if (plan != null && (simulate || options.has(watchO) || outputFormat != OutputFormat.DIRECTORY))
+            throw new IllegalArgumentException("Plan cannot be combined with simulate, watch or an archive output format");
 
         if (!releases.isDirectory())
             throw new IllegalArgumentException("Releases must be an existing directory");
@@ -40,9 +103,24 @@ public class Main {
         if (!proxy.isDirectory())
             throw new IllegalArgumentException("Proxy must be an existing directory");
 
+        if (routingRules != null && !routingRules.isFile())
+            throw new IllegalArgumentException("Routing rules must be an existing file");
+
+        if (walkers < 1)
+            throw new IllegalArgumentException("Walkers must be at least 1");
+
+        if (options.has(dedupO) && dedupIndexSize < 1)
+            throw new IllegalArgumentException("Dedup index size must be at least 1");
+
+        if (options.has(watchO) && watchDebounce < 1)
+            throw new IllegalArgumentException("Watch debounce must be at least 1 millisecond");
+
+        if (outputFormat != OutputFormat.DIRECTORY && (verify || options.has(watchO)))
+            throw new IllegalArgumentException("Verify and watch need the directory output format, archives cannot be changed once written");
+
         if (!simulate && !output.isDirectory() && !output.mkdirs())
             throw new IllegalArgumentException("Could not make output directory with path " + output.getAbsolutePath());
 
-        new MavenReorganizer(releases.toPath(), proxy.toPath(), output.toPath(), simulate, resume).run();
+        new MavenReorganizer(releases.toPath(), proxy.toPath(), output.toPath(), new ReorganizerOptions(simulate, resume, threads, walkers, linkMode, outputFormat, incremental, verify, metadataCache, dedupIndexSize, routingRules == null ? null : routingRules.toPath(), watchDebounce, reportInterval, plan == null ? null : plan.toPath())).run();
     }
 }
@@ -3,32 +3,49 @@ package me.sizableshrimp.mavenreorganizer;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import me.sizableshrimp.mavenreorganizer.data.Artifact;
+import me.sizableshrimp.mavenreorganizer.data.ArtifactIndex;
+import me.sizableshrimp.mavenreorganizer.data.Repo;
+import me.sizableshrimp.mavenreorganizer.output.OutputSink;
+import me.sizableshrimp.mavenreorganizer.plan.PlanSink;
 import org.apache.maven.artifact.repository.metadata.Metadata;
 import org.apache.maven.artifact.repository.metadata.Versioning;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class MavenReorganizer {
     @SuppressWarnings("deprecation")
@@ -38,160 +55,801 @@ public class MavenReorganizer {
         "sha256", Hashing.sha256(),
         "sha512", Hashing.sha512()
     );
+    private static final int PROGRESS_INTERVAL = 10_000;
+    private static final String QUARANTINE_FOLDER = "quarantine";
     private final Path releases;
     private final Path proxy;
     private final Path output;
     private final boolean simulate;
     private final boolean resume;
-    private final Map<Path, Repo> releasesMapper = new LinkedHashMap<>();
-    private final Map<Path, Repo> proxyMapper = new LinkedHashMap<>();
+    private final int threads;
+    private final int walkers;
+    private final boolean verify;
+    private final OutputSink sink;
+    private final SyncManifest manifest;
+    private final MetadataCache metadataCache;
+    private final DedupIndex dedupIndex;
+    private final int reportInterval;
+    private final int watchDebounce;
+    private final boolean planning;
+    private final RunMetrics metrics = new RunMetrics();
+    // Coordinates of every artifact walked by the initial run, shared by both source folders. Batches of changes use their own
+    private final ArtifactIndex artifactIndex = new ArtifactIndex();
+    // output metadata path -> versions routed to it from either source folder
+    private final Map<Path, Set<String>> routedVersions = new ConcurrentHashMap<>();
+    // Output metadata paths whose versions changed since the last incremental run
+    private final Set<Path> changedMetadata = ConcurrentHashMap.newKeySet();
+    private final RepoRouter releasesMapper;
+    private final RepoRouter proxyMapper;
+    // Repos that both source folders route to, whose artifacts have to be claimed before they are written
+    private final Set<Repo> sharedRepos = new HashSet<>();
+    // output artifact path in a shared repo -> source folder that last wrote it
+    private final Map<Path, Claim> claims = new ConcurrentHashMap<>();
+    private final Striped<Lock> claimLocks = Striped.lock(256);
+    private final Tree releasesTree;
+    private final Tree proxyTree;
+    private volatile boolean watching;
+    // Output metadata paths that artifacts were routed to while processing a batch of changes
+    private volatile Set<Path> touchedMetadata;
+
+    public MavenReorganizer(Path releases, Path proxy, Path output, ReorganizerOptions options) {
+        this(releases, proxy, output, options, createSink(output, options));
+    }
+
+    public MavenReorganizer(Path releases, Path proxy, Path output, ReorganizerOptions options, OutputSink sink) {
+        if (!sink.writesLooseFiles() && (options.resume() || options.incremental() || options.watchDebounce() > 0))
+            throw new IllegalArgumentException("Resume, incremental and watching runs need the output to be written as loose files");
 
-    public MavenReorganizer(Path releases, Path proxy, Path output, boolean simulate, boolean resume) {
         this.releases = releases;
         this.proxy = proxy;
         this.output = output;
-        this.simulate = simulate;
-        this.resume = resume;
+        this.simulate = options.simulate();
+        this.resume = options.resume();
+        this.threads = options.threads();
+        this.walkers = options.walkers();
+        this.verify = options.verify();
+        this.sink = sink;
+        this.dedupIndex = options.dedupIndexSize() > 0 ? new DedupIndex(options.dedupIndexSize()) : null;
+        this.reportInterval = options.reportInterval();
+        this.watchDebounce = options.watchDebounce();
+        this.planning = options.plan() != null;
+
+        SyncManifest manifest = null;
+        if (options.incremental()) {
+            try {
+                manifest = SyncManifest.load(output);
+            } catch (IOException e) {
+                System.err.println("Error when reading manifest from output directory: " + output);
+                sneakyThrow(e);
+            }
+        }
+        this.manifest = manifest;
+
+        MetadataCache metadataCache = null;
+        if (options.metadataCache()) {
+            try {
+                metadataCache = MetadataCache.load(output);
+            } catch (IOException e) {
+                System.err.println("Error when reading metadata cache from output directory: " + output);
+                sneakyThrow(e);
+            }
+        }
+        this.metadataCache = metadataCache;
+
+        RoutingRules routingRules = null;
+        try {
+            // Compiled rules are cached with the rest of the run state in the output directory, which is left alone when simulating or planning
+            routingRules = options.routingRules() == null
+                    ? RoutingRules.loadDefault()
+                    : RoutingRules.load(options.routingRules(), this.simulate || this.planning ? null : output.resolve(RoutingRules.CACHE_FILE_NAME));
+        } catch (IOException e) {
+            System.err.println("Error when reading routing rules: " + (options.routingRules() == null ? RoutingRules.DEFAULT_RESOURCE : options.routingRules()));
+            sneakyThrow(e);
+        }
+        this.releasesMapper = routingRules.releases();
+        this.proxyMapper = routingRules.proxy();
+        this.sharedRepos.addAll(this.releasesMapper.getRepos());
+        this.sharedRepos.retainAll(this.proxyMapper.getRepos());
 
-        createBaseRepos();
+        // Proxy has the higher priority, so it wins for repos shared with releases like it would if it was processed last
+        this.releasesTree = new Tree(releases, this.releasesMapper, 0);
+        this.proxyTree = new Tree(proxy, this.proxyMapper, 1);
+    }
+
+    private static OutputSink createSink(Path output, ReorganizerOptions options) {
+        if (options.plan() == null)
+            return options.outputFormat().createSink(output, options.linkMode());
+
+        try {
+            return new PlanSink(options.plan(), output);
+        } catch (IOException e) {
+            System.err.println("Error when creating plan: " + options.plan());
+            sneakyThrow(e);
+            return null;
+        }
     }
 
     public void run() {
-        Set<String> ur = run(releases, releasesMapper, "releases");
-        run(proxy, proxyMapper, null);
+        ScheduledExecutorService reporter = null;
+        if (this.reportInterval > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("reporter").setDaemon(true).build());
+            reporter.scheduleAtFixedRate(() -> System.out.println(this.metrics.getSummary()), this.reportInterval, this.reportInterval, TimeUnit.SECONDS);
+        }
+
+        TreeWatcher watcher = null;
+        try {
+            // Registered before the first run, so nothing deployed while it runs is missed
+            if (this.watchDebounce > 0)
+                watcher = new TreeWatcher(List.of(this.releases, this.proxy), this.watchDebounce);
+        } catch (IOException e) {
+            System.err.println("Error when watching source folders: " + this.releases + ", " + this.proxy);
+            sneakyThrow(e);
+        }
 
+        try {
+            run0();
+        } finally {
+            if (reporter != null)
+                reporter.shutdownNow();
+        }
+
+        System.out.println("Finished " + this.metrics.getSummary());
+        writeReport();
+
+        if (watcher != null)
+            watch(watcher);
+    }
+
+    private void run0() {
+        Tree releasesTree = this.releasesTree;
+        Tree proxyTree = this.proxyTree;
+
+        ForkJoinPool walkPool = this.walkers > 1 ? new ForkJoinPool(this.walkers) : null;
+        // Both trees share the copy threads, so walking them at once does not double the number of copies in flight
+        try (CopyPipeline pipeline = new CopyPipeline(this.threads, walkPool != null)) {
+            if (walkPool != null) {
+                walkPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(
+                        ForkJoinTask.adapt(() -> processArtifacts(releasesTree, pipeline, walkPool)),
+                        ForkJoinTask.adapt(() -> processArtifacts(proxyTree, pipeline, walkPool)))));
+            } else {
+                processArtifacts(releasesTree, pipeline, null);
+                processArtifacts(proxyTree, pipeline, null);
+            }
+        } finally {
+            if (walkPool != null)
+                walkPool.shutdown();
+        }
+        System.out.println("Processed " + releasesTree.processed.get() + " artifacts in " + releasesTree.folderPath);
+        System.out.println("Processed " + proxyTree.processed.get() + " artifacts in " + proxyTree.folderPath);
+
+        if (this.manifest != null) {
+            rewriteReplacedDestinations();
+            removeStaleFiles(false);
+            findChangedMetadata();
+        }
+
+        // Metadata is written after every artifact is in place, with proxy last so it wins for repos shared with releases
+        processMetadata(releasesTree);
+        processMetadata(proxyTree);
+
+        if (this.manifest != null)
+            removeStaleFiles(true);
+
+        writeDeleted(releasesTree);
+        writeDeleted(proxyTree);
+        writeCorrupted(releasesTree);
+        writeCorrupted(proxyTree);
+
+        saveState();
+        // The output stays open for the changes that come in while watching
+        if (this.watchDebounce <= 0)
+            closeSink();
+
+        Set<String> ur = releasesTree.unclaimed;
         if (!ur.isEmpty()) {
             System.out.println("Unclaimed Releases:");
             ur.forEach(System.out::println);
         }
     }
 
-    private Set<String> run(Path folderPath, Map<Path, Repo> mapper, String name) {
-        List<Artifact> artifacts = new ArrayList<>();
-        Set<String> unclaimed = new TreeSet<>();
-        Set<String> deleted = new TreeSet<>();
+    /**
+     * Processes changes to the source folders as they come in, until the thread is interrupted.
+     */
+    private void watch(TreeWatcher watcher) {
+        this.watching = true;
+        System.out.println("Watching " + this.releases + " and " + this.proxy + " for changes");
 
-        try (Stream<Path> walker = Files.walk(folderPath)) {
-            walker.filter(Files::isRegularFile).forEach(filePath -> {
-                Artifact artifact = Artifact.createFromPath(folderPath, filePath);
-
-                if (artifact != null) {
-                    if (!artifact.isSnapshot() && artifact.isMetadata()) {
-                        // Reposilite is dumb and makes these invalid metadata files for release versions if queried.
-                        // So, we drop them here.
-                        // Lex's fixed version does not do that anymore so deleting them here should keep them gone for good.
-                        if (!isHash(artifact))
-                            deleted.add(artifact.getRelativePath().toString());
-                        return;
-                    }
-                    artifacts.add(artifact);
+        try (watcher) {
+            while (true) {
+                Set<Path> changedDirectories = watcher.take();
+                long start = System.nanoTime();
+                int artifactDirectories = processChanges(changedDirectories);
+                if (artifactDirectories > 0) {
+                    System.out.println("Processed changes in " + artifactDirectories + " artifact directories in "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms, " + this.metrics.getSummary());
                 }
-            });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (IOException e) {
+            System.err.println("Error when watching source folders: " + this.releases + ", " + this.proxy);
             sneakyThrow(e);
-            return unclaimed;
+        } finally {
+            closeSink();
         }
+    }
 
-        // output metadata path -> metadata
-        Map<Path, Metadata> metadataMap = new HashMap<>();
-        System.out.println("Processing " + artifacts.size() + " artifacts");
-        float idx = 0;
-        int percent = 0;
+    /**
+     * Walks the artifact directories affected by the given changed directories, and rewrites the metadata the artifacts in them route to.
+     *
+     * @return the number of artifact directories that were walked or had their metadata rewritten
+     */
+    private int processChanges(Set<Path> changedDirectories) {
+        Set<Path> touched = ConcurrentHashMap.newKeySet();
+        this.touchedMetadata = touched;
+        int artifactDirectories;
+        try {
+            artifactDirectories = processChanges(this.releasesTree, changedDirectories, touched)
+                    + processChanges(this.proxyTree, changedDirectories, touched);
+        } finally {
+            this.touchedMetadata = null;
+        }
+        if (artifactDirectories == 0)
+            return 0;
 
-        for (Artifact artifact : artifacts) {
-            idx++;
-            if (idx / artifacts.size() * 100 >= percent + 10) {
-                percent += 10;
-                System.out.println("Processed " + percent + "% (" + (int)idx + "/" + artifacts.size() + ")");
-            }
-            Path outputMetadataPath = getOutputPath(mapper, artifact, true);
-            if (outputMetadataPath == null) {
-                unclaimed.add(artifact.groupId().replace('.', '/') + '/' + artifact.artifactId());
+        if (this.manifest != null) {
+            findChangedMetadata(this.releasesTree, touched);
+            findChangedMetadata(this.proxyTree, touched);
+        }
+        processMetadata(this.releasesTree, touched);
+        processMetadata(this.proxyTree, touched);
+
+        writeDeleted(this.releasesTree);
+        writeDeleted(this.proxyTree);
+        writeCorrupted(this.releasesTree);
+        writeCorrupted(this.proxyTree);
+        saveState();
+        writeReport();
+        return artifactDirectories;
+    }
+
+    private int processChanges(Tree tree, Set<Path> changedDirectories, Set<Path> touched) {
+        // artifactId directory -> changed version directories in it
+        Map<Path, Set<Path>> versionDirectories = new HashMap<>();
+        // artifactId directories with metadata that was never routed before, so all of their versions need to be walked
+        Set<Path> newArtifactDirectories = new HashSet<>();
+        Set<Path> changedMetadata = new HashSet<>();
+
+        for (Path dir : changedDirectories) {
+            if (!dir.startsWith(tree.folderPath) || dir.equals(tree.folderPath))
                 continue;
+
+            // Same rule as the walk, a version directory is one whose parent has maven-metadata.xml
+            Path parent = dir.getParent();
+            if (!parent.equals(tree.folderPath) && Files.exists(parent.resolve("maven-metadata.xml"))) {
+                versionDirectories.computeIfAbsent(parent, k -> new HashSet<>()).add(dir);
+            } else if (Files.exists(dir.resolve("maven-metadata.xml"))) {
+                changedMetadata.add(dir.resolve("maven-metadata.xml"));
             }
+        }
 
-            Path outputArtifactPath = getOutputPath(mapper, artifact, false);
-            if (outputArtifactPath == null) {
-                unclaimed.add(artifact.groupId().replace('.', '/') + '/' + artifact.artifactId());
-                continue;
+        if (!changedMetadata.isEmpty()) {
+            Set<Path> routedSources = new HashSet<>();
+            tree.metadataSources.forEach((outputMetadataPath, source) -> {
+                if (changedMetadata.contains(source.path())) {
+                    routedSources.add(source.path());
+                    touched.add(outputMetadataPath);
+                }
+            });
+            for (Path metadataPath : changedMetadata) {
+                if (!routedSources.contains(metadataPath))
+                    newArtifactDirectories.add(metadataPath.getParent());
             }
+        }
 
-            if (!metadataMap.containsKey(outputMetadataPath)) {
-                Path metadataPath = artifact.getMetadataPath(folderPath);
-                try {
-                    metadataMap.put(outputMetadataPath, MetadataIO.read(metadataPath));
+        if (versionDirectories.isEmpty() && newArtifactDirectories.isEmpty())
+            return changedMetadata.size();
 
-                    // maven-metadata.xml under snapshot version folders will be considered artifacts and copied to the relevant output repo
-                    // They need no changes, so this works fine
-                } catch (IOException | XmlPullParserException e) {
-                    System.err.println("Error when reading metadata: " + metadataPath);
+        AtomicLong processed = new AtomicLong();
+        // A fresh index per batch, so watching does not keep every coordinate it has ever seen
+        ArtifactIndex artifactIndex = new ArtifactIndex();
+        try (CopyPipeline pipeline = new CopyPipeline(this.threads)) {
+            Set<Path> artifactDirectories = new HashSet<>(versionDirectories.keySet());
+            artifactDirectories.addAll(newArtifactDirectories);
+
+            for (Path artifactDir : artifactDirectories) {
+                Set<Path> versions = newArtifactDirectories.contains(artifactDir) ? null : versionDirectories.get(artifactDir);
+                try {
+                    Files.walkFileTree(artifactDir, new ArtifactVisitor(tree.folderPath, artifactIndex, this.metrics,
+                            directoryArtifacts -> submitArtifacts(tree, pipeline, processed, directoryArtifacts)) {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            if (versions != null && artifactDir.equals(dir.getParent()) && !versions.contains(dir))
+                                return FileVisitResult.SKIP_SUBTREE;
+                            return super.preVisitDirectory(dir, attrs);
+                        }
+                    });
+                } catch (NoSuchFileException ignored) {
+                    // Removed again before the changes settled
+                } catch (IOException e) {
+                    System.err.println("Error when walking changed directory: " + artifactDir);
                     sneakyThrow(e);
                 }
             }
+        }
+
+        Set<Path> counted = new HashSet<>(versionDirectories.keySet());
+        counted.addAll(newArtifactDirectories);
+        changedMetadata.forEach(metadataPath -> counted.add(metadataPath.getParent()));
+        return counted.size();
+    }
+
+    private void closeSink() {
+        try {
+            this.sink.close();
+        } catch (IOException e) {
+            System.err.println("Error when finishing output: " + this.output);
+            sneakyThrow(e);
+        }
+    }
+
+    private void writeReport() {
+        // A plan only reports once it is applied, by the applier
+        if (this.simulate || this.planning)
+            return;
+
+        Path reportPath = this.output.resolve(RunMetrics.REPORT_FILE_NAME);
+        try {
+            this.metrics.writeReport(reportPath);
+        } catch (IOException e) {
+            System.err.println("Error when writing report: " + reportPath);
+            sneakyThrow(e);
+        }
+    }
+
+    private void saveState() {
+        if (this.manifest != null)
+            this.manifest.clearOutputListings();
+        if (this.manifest != null && !this.simulate) {
+            try {
+                // A plan carries the manifest along, so it only replaces the old one once the plan is applied
+                if (this.planning) {
+                    this.sink.write(this.output.resolve(SyncManifest.FILE_NAME), this.manifest.toByteArray());
+                } else {
+                    this.manifest.save();
+                }
+            } catch (IOException e) {
+                System.err.println("Error when writing manifest to output directory: " + this.output);
+                sneakyThrow(e);
+            }
+        }
 
+        if (this.metadataCache != null && !this.simulate) {
             try {
-                copyArtifact(folderPath, artifact, outputArtifactPath);
+                if (this.planning) {
+                    this.sink.write(this.output.resolve(MetadataCache.FILE_NAME), this.metadataCache.toByteArray());
+                } else {
+                    this.metadataCache.save();
+                }
             } catch (IOException e) {
-                System.err.println("Error when copying artifact " + artifact + " to output path " + outputArtifactPath);
+                System.err.println("Error when writing metadata cache to output directory: " + this.output);
                 sneakyThrow(e);
             }
         }
+    }
 
-        metadataMap.forEach((outputMetadataPath, metadata) -> {
-            Versioning versioning = metadata.getVersioning();
+    /**
+     * @param walkPool pool to walk the top level group directories of the tree in parallel with, or null to walk it on this thread
+     */
+    private void processArtifacts(Tree tree, CopyPipeline pipeline, ForkJoinPool walkPool) {
+        System.out.println("Processing artifacts in " + tree.folderPath);
+        walk(tree.folderPath, walkPool, directoryArtifacts -> submitArtifacts(tree, pipeline, tree.processed, directoryArtifacts));
+    }
 
-            if (!this.simulate) {
-                // Only keep versions in the maven metadata which exist in the output folder
-                int beforeSize = versioning.getVersions().size();
-                versioning.getVersions().removeIf(version -> !Files.isDirectory(outputMetadataPath.resolveSibling(version)));
-                int afterSize = versioning.getVersions().size();
+    private void submitArtifacts(Tree tree, CopyPipeline pipeline, AtomicLong processed, List<Artifact> directoryArtifacts) {
+        List<Artifact> artifacts = new ArrayList<>(directoryArtifacts.size());
 
-                if (beforeSize != afterSize && !versioning.getVersions().contains(versioning.getRelease())) {
-                    String newRelease = versioning.getVersions().stream()
-                            .filter(version -> !version.endsWith("-SNAPSHOT"))
-                            .findFirst()
-                            .orElse(null);
-                    // If we removed any entries and the release version is not in the list, set it to the first non-SNAPSHOT entry in versions (or null)
-                    versioning.setRelease(newRelease);
-                }
-                if (beforeSize != afterSize && !versioning.getVersions().contains(versioning.getLatest())) {
-                    // If we removed any entries and the latest version is not in the list, set it to the first entry in versions
-                    versioning.setLatest(versioning.getVersions().isEmpty() ? null : versioning.getVersions().get(0));
+        for (Artifact artifact : directoryArtifacts) {
+            if (!artifact.isSnapshot() && artifact.isMetadata()) {
+                // Reposilite is dumb and makes these invalid metadata files for release versions if queried.
+                // So, we drop them here.
+                // Lex's fixed version does not do that anymore so deleting them here should keep them gone for good.
+                if (!isHash(artifact))
+                    tree.deleted.add(artifact.getRelativePath().toString());
+                this.metrics.increment(RunMetrics.Counter.DROPPED);
+                continue;
+            }
+            artifacts.add(artifact);
+        }
+
+        if (artifacts.isEmpty())
+            return;
+
+        // Checksum sidecars go last, so that a resume still sees the old sidecars when it compares the files they describe
+        artifacts.sort(Comparator.comparing(MavenReorganizer::isHash));
+
+        pipeline.submit(() -> {
+            for (Artifact artifact : artifacts) {
+                processArtifact(tree, artifact);
+
+                long count = processed.incrementAndGet();
+                if (count % PROGRESS_INTERVAL == 0)
+                    System.out.println("Processed " + count + " artifacts");
+            }
+        });
+    }
+
+    private void walk(Path folderPath, ForkJoinPool walkPool, Consumer<List<Artifact>> directoryConsumer) {
+        try {
+            if (walkPool == null) {
+                Files.walkFileTree(folderPath, new ArtifactVisitor(folderPath, this.artifactIndex, this.metrics, directoryConsumer));
+                return;
+            }
+
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(folderPath, Files::isDirectory)) {
+                for (Path groupDir : stream) {
+                    tasks.add(ForkJoinTask.adapt(() -> {
+                        try {
+                            Files.walkFileTree(groupDir, new ArtifactVisitor(folderPath, this.artifactIndex, this.metrics, directoryConsumer));
+                        } catch (IOException e) {
+                            sneakyThrow(e);
+                        }
+                    }));
                 }
             }
+            // Joined from a worker of the walk pool, this thread keeps walking instead of waiting
+            walkPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        } catch (IOException e) {
+            sneakyThrow(e);
+        }
+    }
+
+    private void processArtifact(Tree tree, Artifact artifact) {
+        long routeStart = System.nanoTime();
+        Repo repo = tree.mapper.route(artifact);
+        if (repo == null) {
+            tree.unclaimed.add(artifact.coordinates().artifact().path());
+            this.metrics.increment(RunMetrics.Counter.UNCLAIMED);
+            return;
+        }
+
+        Path outputMetadataPath = repo.getMetadataPath(output, artifact);
+        Path outputArtifactPath = repo.getPath(output, artifact);
+        this.metrics.record(RunMetrics.Phase.ROUTE, routeStart);
+        Set<Path> touched = this.touchedMetadata;
+        if (touched != null)
+            touched.add(outputMetadataPath);
+
+        // maven-metadata.xml under snapshot version folders will be considered artifacts and copied to the relevant output repo
+        // They need no changes, so this works fine
+        tree.metadataSources.computeIfAbsent(outputMetadataPath, p -> new MetadataSource(artifact.getMetadataPath(tree.folderPath),
+                tree.name + '/' + artifact.coordinates().artifact().path() + "/maven-metadata.xml",
+                getManifestRoot(repo, artifact)));
+
+        // Holding the lock for the whole copy keeps both source folders from writing the same file at once
+        Lock lock = this.sharedRepos.contains(repo) ? this.claimLocks.get(outputArtifactPath) : null;
+        if (lock != null)
+            lock.lock();
+        try {
+            Path inputArtifactPath = artifact.getPath(tree.folderPath);
+            BasicFileAttributes attributes = Files.readAttributes(inputArtifactPath, BasicFileAttributes.class);
+
+            boolean claimed = true;
+            Claim previous = null;
+            if (lock != null) {
+                previous = this.claims.get(outputArtifactPath);
+                claimed = previous == null || previous.tree().priority <= tree.priority;
+            }
+
+            String key = null;
+            String root = null;
+            boolean unchanged = false;
+            if (this.manifest != null) {
+                key = getManifestKey(tree, artifact);
+                root = getManifestRoot(repo, artifact);
+                long compareStart = System.nanoTime();
+                // An unchanged file still has to be written if the other source folder already wrote its own file to the destination in this run
+                unchanged = this.manifest.keepIfUnchanged(key, attributes, root) && (!claimed || previous == null || !previous.written());
+                this.metrics.record(RunMetrics.Phase.COMPARE, compareStart);
+            }
+
+            // Only read for files that are written, since the checksum file is only used to find duplicate content
+            byte[] sha1 = !unchanged && claimed && this.dedupIndex != null && !isHash(artifact) ? readSidecarHash(inputArtifactPath) : null;
+            boolean alreadyWritten = false;
+            // Matching checksum files only make the content worth comparing.
+            // Verified copies are always written, since the copy of the other source folder may have been quarantined
+            if (sha1 != null && lock != null && !this.verify && previous != null && previous.hasContent(sha1, attributes.size())) {
+                long compareStart = System.nanoTime();
+                alreadyWritten = MoreFiles.asByteSource(inputArtifactPath).contentEquals(MoreFiles.asByteSource(previous.artifact().getPath(previous.tree().folderPath)));
+                this.metrics.record(RunMetrics.Phase.COMPARE, compareStart);
+            }
+            if (lock != null && claimed)
+                this.claims.put(outputArtifactPath, new Claim(tree, artifact, attributes, sha1, !unchanged));
+
+            // Checksum files follow the artifact they describe into quarantine
+            boolean quarantined = this.verify && isHash(artifact) && tree.corrupted.containsKey(getHashedFile(artifact).toString());
+            if (quarantined)
+                outputArtifactPath = getQuarantinePath(tree, artifact);
+
+            if (unchanged) {
+                this.sink.skip(tree.folderPath, inputArtifactPath, attributes, outputArtifactPath);
+                this.metrics.increment(RunMetrics.Counter.SKIPPED);
+                if (!quarantined)
+                    addRoutedVersion(outputMetadataPath, artifact);
+                return;
+            }
 
-            // TODO change lastUpdated timestamp based on release/latest versions?
+            if (alreadyWritten) {
+                // The other source folder already wrote identical content to this path
+                claimed = false;
+                this.metrics.increment(RunMetrics.Counter.DEDUPLICATED);
+                this.metrics.add(RunMetrics.Counter.BYTES_SAVED, attributes.size());
+            }
+            // Shared repo paths can be rewritten by the other source folder, so they cannot be link targets
+            boolean shareable = lock == null;
+
+            if (this.manifest == null) {
+                if ((!claimed || copyArtifact(tree, artifact, inputArtifactPath, attributes, outputArtifactPath, shareable, sha1)) && !quarantined)
+                    addRoutedVersion(outputMetadataPath, artifact);
+                return;
+            }
+
+            this.changedMetadata.add(outputMetadataPath);
+            // Quarantined files are left out of the manifest, so they are verified and reported again on the next run
+            if (claimed && !copyArtifact(tree, artifact, inputArtifactPath, attributes, outputArtifactPath, shareable, sha1))
+                return;
+            if (!quarantined)
+                addRoutedVersion(outputMetadataPath, artifact);
+            this.manifest.record(key, attributes, root, false);
+        } catch (IOException e) {
+            System.err.println("Error when copying artifact " + artifact + " to output path " + outputArtifactPath);
+            sneakyThrow(e);
+        } finally {
+            if (lock != null)
+                lock.unlock();
+        }
+    }
+
+    // Only versions with a file in the output are kept in the metadata, so a version that was quarantined as a whole is left out
+    private void addRoutedVersion(Path outputMetadataPath, Artifact artifact) {
+        this.routedVersions.computeIfAbsent(outputMetadataPath, p -> ConcurrentHashMap.newKeySet()).add(artifact.version());
+    }
+
+    /**
+     * Writes the destinations that a file was removed or routed away from, if a skipped file of the other source folder still goes there.
+     * The output of such a destination may still be the removed file, which the other source folder would have overwritten in a full run.
+     */
+    private void rewriteReplacedDestinations() {
+        List<Claim> replaced = new ArrayList<>();
+        for (String destination : this.manifest.getRemovedDestinations(false)) {
+            Claim claim = this.claims.get(this.output.resolve(destination));
+            if (claim != null && !claim.written())
+                replaced.add(claim);
+        }
+
+        try (CopyPipeline pipeline = new CopyPipeline(this.threads)) {
+            for (Claim claim : replaced) {
+                pipeline.submit(() -> {
+                    Tree tree = claim.tree();
+                    Artifact artifact = claim.artifact();
+                    Path inputArtifactPath = artifact.getPath(tree.folderPath);
+                    Repo repo = tree.mapper.route(artifact);
+                    Path outputArtifactPath = repo.getPath(this.output, artifact);
+                    try {
+                        if (!copyArtifact(tree, artifact, inputArtifactPath, claim.attributes(), outputArtifactPath, false, null))
+                            this.manifest.forget(getManifestKey(tree, artifact), getManifestRoot(repo, artifact));
+                    } catch (IOException e) {
+                        System.err.println("Error when copying artifact " + artifact + " to output path " + outputArtifactPath);
+                        sneakyThrow(e);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Marks the output metadata paths that have to be written, because one of the metadata files going there changed
+     * or was removed or routed away since the last run. Every metadata file of such a path is written again in order,
+     * so the output ends up the same as after a full run.
+     */
+    private void findChangedMetadata() {
+        findChangedMetadata(this.releasesTree, this.releasesTree.metadataSources.keySet());
+        findChangedMetadata(this.proxyTree, this.proxyTree.metadataSources.keySet());
+        this.manifest.getRemovedDestinations(true).forEach(destination -> this.changedMetadata.add(this.output.resolve(destination)));
+    }
+
+    private void findChangedMetadata(Tree tree, Set<Path> outputMetadataPaths) {
+        for (Path outputMetadataPath : outputMetadataPaths) {
+            MetadataSource source = tree.metadataSources.get(outputMetadataPath);
+            if (source == null)
+                continue;
 
             try {
-                writeMetadata(outputMetadataPath, metadata);
-                // TODO Do we need to write out all the hash files?
+                BasicFileAttributes attributes = Files.readAttributes(source.path(), BasicFileAttributes.class);
+                if (!this.manifest.keepIfUnchanged(source.manifestKey(), attributes, source.root()))
+                    this.changedMetadata.add(outputMetadataPath);
             } catch (IOException e) {
-                System.err.println("Error when writing metadata to path: " + outputMetadataPath);
+                System.err.println("Error when reading metadata: " + source.path());
                 sneakyThrow(e);
             }
-        });
+        }
+    }
+
+    private void processMetadata(Tree tree) {
+        try (CopyPipeline pipeline = new CopyPipeline(this.threads)) {
+            tree.metadataSources.forEach((outputMetadataPath, source) -> pipeline.submit(() -> processMetadata(outputMetadataPath, source)));
+        }
+    }
+
+    private void processMetadata(Tree tree, Set<Path> outputMetadataPaths) {
+        try (CopyPipeline pipeline = new CopyPipeline(this.threads)) {
+            for (Path outputMetadataPath : outputMetadataPaths) {
+                MetadataSource source = tree.metadataSources.get(outputMetadataPath);
+                if (source != null)
+                    pipeline.submit(() -> processMetadata(outputMetadataPath, source));
+            }
+        }
+    }
+
+    private void processMetadata(Path outputMetadataPath, MetadataSource source) {
+        // Unchanged metadata was already carried over to the new manifest by findChangedMetadata
+        if (this.manifest != null && !this.changedMetadata.contains(outputMetadataPath))
+            return;
+
+        Path metadataPath = source.path();
+        BasicFileAttributes attributes = null;
+        if (this.manifest != null || this.metadataCache != null) {
+            try {
+                attributes = Files.readAttributes(metadataPath, BasicFileAttributes.class);
+            } catch (IOException e) {
+                System.err.println("Error when reading metadata: " + metadataPath);
+                sneakyThrow(e);
+            }
+        }
+
+        Metadata metadata;
+        try {
+            long readStart = System.nanoTime();
+            metadata = this.metadataCache == null ? null : this.metadataCache.get(metadataPath, attributes);
+            if (metadata == null) {
+                metadata = MetadataIO.read(metadataPath);
+                if (this.metadataCache != null)
+                    this.metadataCache.put(metadataPath, attributes, metadata);
+            }
+            this.metrics.record(RunMetrics.Phase.METADATA_READ, readStart);
+        } catch (IOException | XmlPullParserException e) {
+            System.err.println("Error when reading metadata: " + metadataPath);
+            sneakyThrow(e);
+            return;
+        }
+
+        Versioning versioning = metadata.getVersioning();
+
+        // Only keep versions in the maven metadata which were routed to the same output folder
+        Set<String> versions = this.routedVersions.getOrDefault(outputMetadataPath, Set.of());
+        int beforeSize = versioning.getVersions().size();
+        versioning.getVersions().removeIf(version -> !versions.contains(version));
+        int afterSize = versioning.getVersions().size();
+
+        if (beforeSize != afterSize && !versioning.getVersions().contains(versioning.getRelease())) {
+            String newRelease = versioning.getVersions().stream()
+                    .filter(version -> !version.endsWith("-SNAPSHOT"))
+                    .findFirst()
+                    .orElse(null);
+            // If we removed any entries and the release version is not in the list, set it to the first non-SNAPSHOT entry in versions (or null)
+            versioning.setRelease(newRelease);
+        }
+        if (beforeSize != afterSize && !versioning.getVersions().contains(versioning.getLatest())) {
+            // If we removed any entries and the latest version is not in the list, set it to the first entry in versions
+            versioning.setLatest(versioning.getVersions().isEmpty() ? null : versioning.getVersions().get(0));
+        }
+
+        // TODO change lastUpdated timestamp based on release/latest versions?
 
-        if (!this.simulate && !deleted.isEmpty()) {
-            Path deletedF = this.output.resolve(folderPath.getFileName() + "-deleted.txt");
+        try {
+            writeMetadata(outputMetadataPath, metadata);
+            // TODO Do we need to write out all the hash files?
+        } catch (IOException e) {
+            System.err.println("Error when writing metadata to path: " + outputMetadataPath);
+            sneakyThrow(e);
+        }
+
+        if (this.manifest != null)
+            this.manifest.record(source.manifestKey(), attributes, source.root(), true);
+    }
+
+    private void writeDeleted(Tree tree) {
+        if (!this.simulate && !tree.deleted.isEmpty()) {
+            Path deletedF = this.output.resolve(tree.name + "-deleted.txt");
             try {
-                Files.writeString(deletedF, deleted.stream().collect(Collectors.joining("\n")));
+                this.sink.write(deletedF, tree.deleted.stream().collect(Collectors.joining("\n")).getBytes(StandardCharsets.UTF_8));
             } catch (IOException e) {
                 System.err.println("Error when writing deleted list: " + deletedF);
                 sneakyThrow(e);
             }
         }
+    }
+
+    private void writeCorrupted(Tree tree) {
+        if (!this.simulate && !tree.corrupted.isEmpty()) {
+            Path corruptedF = this.output.resolve(tree.name + "-corrupted.txt");
+            try {
+                this.sink.write(corruptedF, tree.corrupted.entrySet().stream()
+                        .map(entry -> entry.getKey() + ' ' + entry.getValue())
+                        .collect(Collectors.joining("\n"))
+                        .getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("Error when writing corrupted list: " + corruptedF);
+                sneakyThrow(e);
+            }
+        }
+    }
+
+    private void removeStaleFiles(boolean metadata) {
+        Set<String> removed = this.manifest.getRemovedDestinations(metadata);
+        // Files that moved between the source folders keep the same destination, and must stay
+        removed.removeAll(this.manifest.getCurrentDestinations());
+        if (removed.isEmpty())
+            return;
 
-        return unclaimed;
+        System.out.println("Removing output of " + removed.size() + (metadata ? " metadata files" : " files") + " that no longer exist in the source folders or were routed elsewhere");
+
+        removed.forEach(destination -> {
+            Path outputPath = this.output.resolve(destination);
+            Path parentDir = outputPath.getParent();
+            // The metadata listing the version of a removed artifact has to be rewritten
+            if (!metadata)
+                this.changedMetadata.add(parentDir.resolveSibling("maven-metadata.xml"));
+
+            if (this.simulate) {
+                System.out.println("Would have removed " + outputPath);
+                return;
+            }
+
+            try {
+                if (this.sink.delete(outputPath))
+                    this.metrics.increment(RunMetrics.Counter.REMOVED);
+                if (metadata) {
+                    for (String hashKey : METADATA_HASH_FUNCTIONS.keySet())
+                        this.sink.delete(outputPath.resolveSibling("maven-metadata.xml." + hashKey));
+                }
+            } catch (IOException e) {
+                System.err.println("Error when removing " + outputPath);
+                sneakyThrow(e);
+            }
+        });
+    }
+
+    private static String getManifestKey(Tree tree, Artifact artifact) {
+        return tree.name + '/' + artifact.coordinates().path() + '/' + artifact.file();
+    }
+
+    private static String getManifestRoot(Repo repo, Artifact artifact) {
+        return (artifact.isSnapshot() ? repo.snapshots() : repo.releases()).toString().replace('\\', '/');
+    }
+
+    private static byte[] readSidecarHash(Path path) throws IOException {
+        String checksum = Checksums.readSidecar(path, "sha1");
+        try {
+            return checksum == null ? null : HashCode.fromString(checksum).asBytes();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     @SuppressWarnings("unchecked")
-    private static <E extends Throwable> void sneakyThrow(Throwable e) throws E {
+    public static <E extends Throwable> void sneakyThrow(Throwable e) throws E {
         throw (E)e;
     }
 
     private static boolean isHash(Artifact artifact) {
+        return isHash(artifact.file());
+    }
+
+    private static boolean isHash(String fileName) {
         for (String key : METADATA_HASH_FUNCTIONS.keySet())
-            if (artifact.file().endsWith('.' + key))
+            if (fileName.endsWith('.' + key))
                 return true;
         return false;
     }
@@ -199,73 +857,91 @@ public class MavenReorganizer {
     private void writeMetadata(Path metadataPath, Metadata metadata) throws IOException {
         if (this.simulate) {
             System.out.println("Would have wrote metadata to path " + metadataPath);
-        } else {
-            Path parentDir = metadataPath.getParent();
-            if (parentDir != null)
-                Files.createDirectories(parentDir);
+            for (String hashKey : METADATA_HASH_FUNCTIONS.keySet())
+                System.out.println("Would have wrote hash file to path " + metadataPath.resolveSibling("maven-metadata.xml." + hashKey));
+            return;
+        }
 
-            boolean shouldWrite = true;
+        // Serialize once, and compute every hash while doing so
+        long hashStart = System.nanoTime();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        MultiHashingOutputStream hashingOut = new MultiHashingOutputStream(METADATA_HASH_FUNCTIONS, buffer);
+        MetadataIO.write(hashingOut, metadata);
+        Map<String, HashCode> hashes = hashingOut.hashes();
+        this.metrics.record(RunMetrics.Phase.HASH, hashStart, buffer.size());
 
-            if (this.resume) {
-                try (ByteArrayOutputStream tempOut = new ByteArrayOutputStream()) {
-                    MetadataIO.write(tempOut, metadata);
-                    String metadataToWrite = tempOut.toString(StandardCharsets.UTF_8);
-                    shouldWrite = shouldWrite(metadataToWrite, metadataPath);
-                }
+        // The hash files are written after the metadata, so matching hash files mean the metadata is already up to date
+        boolean upToDate = this.resume && isSize(metadataPath, buffer.size());
+        Map<String, String> hashesToWrite = new LinkedHashMap<>();
+        for (var entry : hashes.entrySet()) {
+            String metadataHash = entry.getValue().toString();
+            if (!this.resume || shouldWriteHash(metadataHash, metadataPath.resolveSibling("maven-metadata.xml." + entry.getKey()))) {
+                hashesToWrite.put(entry.getKey(), metadataHash);
+                upToDate = false;
             }
-
-            if (shouldWrite)
-                MetadataIO.write(metadataPath, metadata);
         }
 
+        long writeStart = System.nanoTime();
+        if (!upToDate)
+            this.sink.write(metadataPath, buffer.toByteArray());
+
         try {
-            writeMetadataHashes(metadataPath);
+            for (var entry : hashesToWrite.entrySet()) {
+                Path hashPath = metadataPath.resolveSibling("maven-metadata.xml." + entry.getKey());
+                this.sink.write(hashPath, entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
         } catch (IOException e) {
             System.err.println("Error when writing metadata hash");
             sneakyThrow(e);
         }
+        if (!upToDate || !hashesToWrite.isEmpty())
+            this.metrics.record(RunMetrics.Phase.METADATA_WRITE, writeStart, upToDate ? 0 : buffer.size());
     }
 
-    private void writeMetadataHashes(Path metadataPath) throws IOException {
-        byte[] metadataBytes = this.simulate ? null : Files.readAllBytes(metadataPath);
-
-        for (var entry : METADATA_HASH_FUNCTIONS.entrySet()) {
-            Path hashPath = metadataPath.resolveSibling("maven-metadata.xml." + entry.getKey());
-
-            if (this.simulate) {
-                System.out.println("Would have wrote hash file to path " + hashPath);
-            } else {
-                String metadataHash = entry.getValue().hashBytes(metadataBytes).toString();
-                if (!this.resume || shouldWriteHash(metadataHash, hashPath))
-                    Files.writeString(hashPath, metadataHash, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            }
+    private static boolean isSize(Path path, long size) throws IOException {
+        try {
+            return Files.size(path) == size;
+        } catch (NoSuchFileException e) {
+            return false;
         }
     }
 
-    private HashCode getHash(Path path, HashFunction hashFunction) throws IOException {
-        try {
-            byte[] bytes = Files.readAllBytes(path);
+    boolean shouldWrite(Path inputPath, Path outputPath) throws IOException {
+        return shouldWrite(inputPath, Files.readAttributes(inputPath, BasicFileAttributes.class), outputPath);
+    }
 
-            return hashFunction.hashBytes(bytes);
+    private boolean shouldWrite(Path inputPath, BasicFileAttributes inputAttributes, Path outputPath) throws IOException {
+        BasicFileAttributes outputAttributes;
+        try {
+            outputAttributes = Files.readAttributes(outputPath, BasicFileAttributes.class);
         } catch (NoSuchFileException e) {
-            return null;
+            return true;
         }
-    }
 
-    private boolean shouldWrite(Path inputPath, Path outputPath) throws IOException {
-        HashFunction hashFunction = Hashing.md5();
-        HashCode inputHash = getHash(inputPath, hashFunction);
-        HashCode outputHash = getHash(outputPath, hashFunction);
+        if (inputAttributes.size() != outputAttributes.size())
+            return true;
 
-        return !Objects.equals(inputHash, outputHash);
-    }
+        // Copies keep the modified time of the input, so a matching time means this file was already copied
+        if (inputAttributes.lastModifiedTime().equals(outputAttributes.lastModifiedTime()))
+            return false;
+
+        if (!isHash(inputPath.getFileName().toString())) {
+            for (String algorithm : Checksums.SIDECAR_ALGORITHMS) {
+                String inputChecksum = Checksums.readSidecar(inputPath, algorithm);
+                if (inputChecksum == null)
+                    continue;
 
-    private boolean shouldWrite(String inputData, Path outputPath) throws IOException {
-        HashFunction hashFunction = Hashing.md5();
-        HashCode inputHash = hashFunction.hashString(inputData, StandardCharsets.UTF_8);
-        HashCode outputHash = getHash(outputPath, hashFunction);
+                String outputChecksum = Checksums.readSidecar(outputPath, algorithm);
+                if (outputChecksum != null)
+                    return !inputChecksum.equals(outputChecksum);
+            }
+        }
 
-        return !Objects.equals(inputHash, outputHash);
+        // Streams both files in fixed size buffers and stops at the first difference
+        long hashStart = System.nanoTime();
+        boolean equal = MoreFiles.asByteSource(inputPath).contentEquals(MoreFiles.asByteSource(outputPath));
+        this.metrics.record(RunMetrics.Phase.HASH, hashStart, inputAttributes.size());
+        return !equal;
     }
 
     private boolean shouldWriteHash(String inputHash, Path outputHashPath) throws IOException {
@@ -276,94 +952,155 @@ public class MavenReorganizer {
         }
     }
 
-    private void copyArtifact(Path folderPath, Artifact artifact, Path outputArtifactPath) throws IOException {
+    /**
+     * @param shareable   whether the output may be linked to other output paths with the same content, and the other way around
+     * @param sidecarSha1 sha1 from the checksum file of the input, or null if it has none
+     * @return {@code false} if the artifact did not match its checksum files and was quarantined
+     */
+    private boolean copyArtifact(Tree tree, Artifact artifact, Path inputArtifactPath, BasicFileAttributes inputAttributes, Path outputArtifactPath,
+            boolean shareable, byte[] sidecarSha1) throws IOException {
         if (this.simulate) {
-            System.out.println("Would have copied artifact " + artifact.getPath(folderPath) + " to output path " + outputArtifactPath);
-            return;
+            System.out.println("Would have copied artifact " + inputArtifactPath + " to output path " + outputArtifactPath);
+            return true;
         }
 
-        Path parentDir = outputArtifactPath.getParent();
-        if (parentDir != null)
-            Files.createDirectories(parentDir);
-
-        Path inputArtifactPath = artifact.getPath(folderPath);
+        // While watching, the changed directories are walked again as a whole, so files that are already in place have to be skipped
+        if (this.resume || this.watching) {
+            long compareStart = System.nanoTime();
+            boolean shouldWrite = shouldWrite(inputArtifactPath, inputAttributes, outputArtifactPath);
+            this.metrics.record(RunMetrics.Phase.COMPARE, compareStart);
+            if (!shouldWrite) {
+                this.sink.skip(tree.folderPath, inputArtifactPath, inputAttributes, outputArtifactPath);
+                this.metrics.increment(RunMetrics.Counter.SKIPPED);
+                return true;
+            }
+        }
 
-        if (!this.resume || shouldWrite(inputArtifactPath, outputArtifactPath)) {
-            Files.copy(inputArtifactPath, outputArtifactPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        Map<String, String> expected = this.verify && !isHash(artifact) ? readSidecars(inputArtifactPath) : Map.of();
+        // Files without a checksum file are never looked up, so they are not hashed or indexed either
+        boolean dedup = shareable && this.dedupIndex != null && sidecarSha1 != null;
+        long copyStart = System.nanoTime();
+        if (expected.isEmpty() && !dedup) {
+            this.sink.copy(tree.folderPath, inputArtifactPath, inputAttributes, outputArtifactPath);
+            this.metrics.record(RunMetrics.Phase.COPY, copyStart, inputAttributes.size());
+            this.metrics.increment(RunMetrics.Counter.COPIED);
+            return true;
         }
-    }
 
-    private Path getOutputPath(Map<Path, Repo> mapper, Artifact artifact, boolean metadata) {
-        Path relativePath = artifact.getRelativePath();
+        Map<String, HashFunction> hashFunctions = new LinkedHashMap<>();
+        expected.keySet().forEach(algorithm -> hashFunctions.put(algorithm, METADATA_HASH_FUNCTIONS.get(algorithm)));
+        if (dedup)
+            hashFunctions.putIfAbsent("sha1", METADATA_HASH_FUNCTIONS.get("sha1"));
 
-        Path parent = relativePath;
-        while (parent != null) {
-            Repo repo = mapper.get(parent);
+        // The checksum file only points at a candidate, which is linked to once the input is hashed and really has the same content
+        Path duplicatePath = dedup ? this.dedupIndex.get(sidecarSha1, inputAttributes.size()) : null;
+        Map<String, HashCode> actual;
+        if (duplicatePath != null) {
+            long hashStart = System.nanoTime();
+            MultiHashingOutputStream hashingOut = new MultiHashingOutputStream(hashFunctions, OutputStream.nullOutputStream());
+            MoreFiles.asByteSource(inputArtifactPath).copyTo(hashingOut);
+            actual = hashingOut.hashes();
+            this.metrics.record(RunMetrics.Phase.HASH, hashStart, inputAttributes.size());
 
-            if (repo != null) {
-                return metadata ? repo.getMetadataPath(output, artifact) : repo.getPath(output, artifact);
+            if (Arrays.equals(actual.get("sha1").asBytes(), sidecarSha1) && findMismatch(expected, actual) == null
+                    && this.sink.link(duplicatePath, outputArtifactPath)) {
+                this.metrics.increment(RunMetrics.Counter.DEDUPLICATED);
+                this.metrics.add(RunMetrics.Counter.BYTES_SAVED, inputAttributes.size());
+                return true;
             }
 
-            parent = parent.getParent();
+            // Already hashed, so it only has to be copied
+            copyStart = System.nanoTime();
+            this.sink.copy(tree.folderPath, inputArtifactPath, inputAttributes, outputArtifactPath);
+            this.metrics.record(RunMetrics.Phase.COPY, copyStart, inputAttributes.size());
+        } else {
+            actual = this.sink.copyHashing(tree.folderPath, inputArtifactPath, inputAttributes, outputArtifactPath, hashFunctions);
+            // The input is hashed in the same read that copies it, so both phases cover that time
+            this.metrics.record(RunMetrics.Phase.COPY, copyStart, inputAttributes.size());
+            this.metrics.record(RunMetrics.Phase.HASH, copyStart, inputAttributes.size());
         }
 
-        return null;
-    }
-
-    private void createBaseRepos() {
-        addReleasesRepo("forge", "net/minecraftforge", "de/oceanlabs");
-        addReleasesRepo("sponge", "org/spongepowered");
-        addProxyRepo   ("sponge_proxy", "org/spongepowered");
-        addReleasesRepo("cpw_root", "cpw/mods"); // Can't use 'cpw' as repo name because cpw uses it as the top level..
-        addReleasesRepo("mcmodlauncher", "org/mcmodlauncher");
-        addReleasesRepo("ldtteam", "com/ldtteam");
-        addReleasesRepo("glitchfiend", "com/github/glitchfiend");
+        String mismatch = findMismatch(expected, actual);
+        if (mismatch != null) {
+            Path quarantinePath = getQuarantinePath(tree, artifact);
+            System.err.println("Quarantining corrupted artifact " + inputArtifactPath + " to " + quarantinePath + ": " + mismatch);
+            this.sink.move(outputArtifactPath, quarantinePath);
+            tree.corrupted.put(artifact.getRelativePath().toString(), mismatch);
+            this.metrics.increment(RunMetrics.Counter.QUARANTINED);
+            return false;
+        }
 
-        String[] installerFiles = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("/installer_artifacts.txt"))).lines()
-            .map(line -> {
-                String[] pts = line.split(":");
-                if ("com.paulscode:soundsystem".equals(pts[0] + ':' + pts[1]))
-                    return "com/paulscode/soundsystem"; // We have some versions that arnt found in installers, lets keep them anyways
-                return  pts[0].replace('.', '/') + '/' + pts[1] + '/' + pts[2];
-            })
-            .toArray(String[]::new);
-        addRepo(proxyMapper, addReleasesRepo("installer", installerFiles), installerFiles);
+        this.metrics.increment(RunMetrics.Counter.COPIED);
+        // Keyed by the hash of the input rather than its checksum file, so a wrong checksum file can never make other paths link to different content
+        if (dedup)
+            this.dedupIndex.put(actual.get("sha1").asBytes(), inputAttributes.size(), outputArtifactPath);
+        return true;
     }
 
-    private Repo addReleasesRepo(String repo, String... basePaths) {
-        return addRepo(releasesMapper, repo, basePaths);
+    /**
+     * @return a description of the first hash that does not match its checksum file, or null if all of them match
+     */
+    private static String findMismatch(Map<String, String> expected, Map<String, HashCode> actual) {
+        for (var entry : expected.entrySet()) {
+            String actualHash = actual.get(entry.getKey()).toString();
+            if (!actualHash.equals(entry.getValue()))
+                return entry.getKey() + " expected " + entry.getValue() + " but was " + actualHash;
+        }
+        return null;
     }
 
-    private Repo addProxyRepo(String repo, String... basePaths) {
-        return addRepo(proxyMapper, repo, basePaths);
+    private static Map<String, String> readSidecars(Path path) throws IOException {
+        Map<String, String> checksums = new LinkedHashMap<>();
+        for (String algorithm : Checksums.SIDECAR_ALGORITHMS) {
+            String checksum = Checksums.readSidecar(path, algorithm);
+            if (checksum != null)
+                checksums.put(algorithm, checksum);
+        }
+        return checksums;
     }
 
-    private Repo addRepo(Map<Path, Repo> mapper, String repoName, String... basePaths) {
-        return addRepo(mapper, Repo.create(repoName), basePaths);
+    private Path getQuarantinePath(Tree tree, Artifact artifact) {
+        return this.output.resolve(QUARANTINE_FOLDER).resolve(tree.name).resolve(artifact.getRelativePath());
     }
 
-    private Repo addRepo(Map<Path, Repo> mapper, Repo repo, String... basePaths) {
-        for (String folder : basePaths) {
-            if (mapper.put(Paths.get(folder), repo) != null) {
-                throw new IllegalStateException("Duplicate repo path of " + folder);
-            }
-        }
-        return repo;
+    // The file that a checksum file such as foo.jar.sha1 belongs to, relative to its source folder
+    private static Path getHashedFile(Artifact artifact) {
+        String file = artifact.file();
+        return artifact.getRelativePath().resolveSibling(file.substring(0, file.lastIndexOf('.')));
     }
 
-    private record Repo(Path releases, Path snapshots) {
-        static final Repo LEGACY = create("legacy");
+    private static final class Tree {
+        private final Path folderPath;
+        private final RepoRouter mapper;
+        private final String name;
+        private final int priority;
+        // Artifacts processed by the first run, for progress reports
+        private final AtomicLong processed = new AtomicLong();
+        private final Set<String> unclaimed = new ConcurrentSkipListSet<>();
+        private final Set<String> deleted = new ConcurrentSkipListSet<>();
+        // relative path -> checksum mismatch
+        private final Map<String, String> corrupted = new ConcurrentSkipListMap<>();
+        // output metadata path -> source metadata
+        private final Map<Path, MetadataSource> metadataSources = new ConcurrentHashMap<>();
 
-        static Repo create(String repo) {
-            return new Repo(Paths.get(repo + "/releases"), Paths.get(repo + "/snapshots"));
+        private Tree(Path folderPath, RepoRouter mapper, int priority) {
+            this.folderPath = folderPath;
+            this.mapper = mapper;
+            this.name = folderPath.getFileName().toString();
+            this.priority = priority;
         }
+    }
 
-        Path getPath(Path outputFolder, Artifact artifact) {
-            return outputFolder.resolve(artifact.getPath(releases, snapshots));
-        }
+    private record MetadataSource(Path path, String manifestKey, String root) {}
 
-        Path getMetadataPath(Path outputFolder, Artifact artifact) {
-            return outputFolder.resolve(artifact.getMetadataPath(releases, snapshots));
+    /**
+     * @param sha1    sha1 of the claimed content from its checksum file, or null if it has none or it was not needed.
+     *                Only trusted to find content worth comparing
+     * @param written whether the claimed content was written in this run, rather than skipped as unchanged since the last run
+     */
+    private record Claim(Tree tree, Artifact artifact, BasicFileAttributes attributes, byte[] sha1, boolean written) {
+        private boolean hasContent(byte[] sha1, long size) {
+            return this.sha1 != null && this.attributes.size() == size && Arrays.equals(this.sha1, sha1);
         }
     }
 }
@@ -0,0 +1,234 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the parsed contents of source {@code maven-metadata.xml} files between runs, keyed by their path, size and modified time,
+ * so metadata that did not change is not parsed again.
+ * <p>
+ * Only the subset handled by {@link MetadataParser} is cached. Entries that were not used during a run are dropped when saving,
+ * and the file is replaced through an atomic move like the {@link SyncManifest}.
+ */
+public class MetadataCache {
+    public static final String FILE_NAME = ".reorganizer-metadata-cache";
+    private static final int MAGIC = 0x4D524D43; // MRMC
+    private static final int FORMAT_VERSION = 1;
+    private static final int FLAG_VERSIONING = 1;
+    private static final int FLAG_SNAPSHOT = 2;
+    private static final int FLAG_LOCAL_COPY = 4;
+    private final Path path;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private MetadataCache(Path path, Map<String, Entry> previous) {
+        this.path = path;
+        this.previous = previous;
+    }
+
+    public static MetadataCache load(Path outputFolder) throws IOException {
+        Path path = outputFolder.resolve(FILE_NAME);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                System.err.println("Ignoring metadata cache with unknown format: " + path);
+                return new MetadataCache(path, Map.of());
+            }
+
+            int size = in.readInt();
+            Map<String, Entry> entries = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                long fileSize = in.readLong();
+                long modified = in.readLong();
+                int flags = in.readUnsignedByte();
+                String[] values = new String[Entry.VALUE_COUNT];
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = readNullable(in);
+                }
+                String[] versions = new String[in.readInt()];
+                for (int j = 0; j < versions.length; j++) {
+                    versions[j] = in.readUTF();
+                }
+                int buildNumber = in.readInt();
+
+                entries.put(key, new Entry(fileSize, modified, flags, values, versions, buildNumber));
+            }
+
+            return new MetadataCache(path, entries);
+        } catch (NoSuchFileException e) {
+            return new MetadataCache(path, Map.of());
+        }
+    }
+
+    /**
+     * @return a new copy of the cached metadata if the file has the same size and modified time as when it was cached, otherwise {@code null}
+     */
+    public Metadata get(Path metadataPath, BasicFileAttributes attributes) {
+        String key = metadataPath.toString();
+        Entry entry = this.previous.get(key);
+        if (entry == null || !entry.matches(attributes))
+            return null;
+
+        this.current.put(key, entry);
+        return entry.toMetadata();
+    }
+
+    /**
+     * Caches freshly read metadata. Must be called before the metadata is modified.
+     */
+    public void put(Path metadataPath, BasicFileAttributes attributes, Metadata metadata) {
+        Entry entry = Entry.of(attributes, metadata);
+        if (entry != null)
+            this.current.put(metadataPath.toString(), entry);
+    }
+
+    public void save() throws IOException {
+        Path tempPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            write(out);
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(tempPath, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the cache in the same format {@link #save()} writes it in
+     */
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        write(out);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+
+        // Copy the entries, so the count matches even if something is still being added
+        Map<String, Entry> entries = new HashMap<>(this.current);
+        out.writeInt(entries.size());
+        for (var mapEntry : entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            out.writeUTF(mapEntry.getKey());
+            out.writeLong(entry.size());
+            out.writeLong(entry.modified());
+            out.writeByte(entry.flags());
+            for (String value : entry.values()) {
+                writeNullable(out, value);
+            }
+            out.writeInt(entry.versions().length);
+            for (String version : entry.versions()) {
+                out.writeUTF(version);
+            }
+            out.writeInt(entry.buildNumber());
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null)
+            out.writeUTF(value);
+    }
+
+    /**
+     * @param values model encoding, model version, groupId, artifactId, version, latest, release, lastUpdated and snapshot timestamp
+     */
+    private record Entry(long size, long modified, int flags, String[] values, String[] versions, int buildNumber) {
+        private static final int VALUE_COUNT = 9;
+
+        private static Entry of(BasicFileAttributes attributes, Metadata metadata) {
+            if (!metadata.getPlugins().isEmpty())
+                return null;
+
+            Versioning versioning = metadata.getVersioning();
+            Snapshot snapshot = versioning == null ? null : versioning.getSnapshot();
+            if (versioning != null && !versioning.getSnapshotVersions().isEmpty())
+                return null;
+
+            int flags = (versioning != null ? FLAG_VERSIONING : 0)
+                    | (snapshot != null ? FLAG_SNAPSHOT : 0)
+                    | (snapshot != null && snapshot.isLocalCopy() ? FLAG_LOCAL_COPY : 0);
+            String[] values = {
+                    metadata.getModelEncoding(),
+                    metadata.getModelVersion(),
+                    metadata.getGroupId(),
+                    metadata.getArtifactId(),
+                    metadata.getVersion(),
+                    versioning == null ? null : versioning.getLatest(),
+                    versioning == null ? null : versioning.getRelease(),
+                    versioning == null ? null : versioning.getLastUpdated(),
+                    snapshot == null ? null : snapshot.getTimestamp()
+            };
+            List<String> versions = versioning == null ? List.of() : versioning.getVersions();
+            if (versions.contains(null))
+                return null;
+
+            return new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), flags, values, versions.toArray(String[]::new),
+                    snapshot == null ? 0 : snapshot.getBuildNumber());
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return this.size == attributes.size() && this.modified == attributes.lastModifiedTime().toMillis();
+        }
+
+        private Metadata toMetadata() {
+            Metadata metadata = new Metadata();
+            metadata.setModelEncoding(this.values[0]);
+            metadata.setModelVersion(this.values[1]);
+            metadata.setGroupId(this.values[2]);
+            metadata.setArtifactId(this.values[3]);
+            metadata.setVersion(this.values[4]);
+
+            if ((this.flags & FLAG_VERSIONING) != 0) {
+                Versioning versioning = new Versioning();
+                versioning.setLatest(this.values[5]);
+                versioning.setRelease(this.values[6]);
+                versioning.setLastUpdated(this.values[7]);
+                for (String version : this.versions) {
+                    versioning.addVersion(version);
+                }
+
+                if ((this.flags & FLAG_SNAPSHOT) != 0) {
+                    Snapshot snapshot = new Snapshot();
+                    snapshot.setTimestamp(this.values[8]);
+                    snapshot.setBuildNumber(this.buildNumber);
+                    snapshot.setLocalCopy((this.flags & FLAG_LOCAL_COPY) != 0);
+                    versioning.setSnapshot(snapshot);
+                }
+                metadata.setVersioning(versioning);
+            }
+
+            return metadata;
+        }
+    }
+}
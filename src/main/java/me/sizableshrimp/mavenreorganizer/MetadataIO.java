@@ -5,6 +5,7 @@ import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
 import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -12,18 +13,26 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 
+/**
+ * Reads and writes {@code maven-metadata.xml} with {@link MetadataParser} and {@link MetadataWriter}, falling back to the
+ * full Xpp3 reader and writer for anything they do not support. Safe to use from any number of threads.
+ */
 public class MetadataIO {
-    private static final MetadataXpp3Reader XML_READER = new MetadataXpp3Reader();
-    private static final MetadataXpp3Writer XML_WRITER = new MetadataXpp3Writer();
-
     public static Metadata read(Path path) throws XmlPullParserException, IOException {
-        try (InputStream is = Files.newInputStream(path)) {
-            return read(is);
-        }
+        return read(Files.readAllBytes(path));
     }
 
     public static Metadata read(InputStream inputStream) throws XmlPullParserException, IOException {
-        return XML_READER.read(inputStream);
+        return read(inputStream.readAllBytes());
+    }
+
+    public static Metadata read(byte[] data) throws XmlPullParserException, IOException {
+        Metadata metadata = MetadataParser.parse(data);
+        if (metadata != null)
+            return metadata;
+
+        // The Xpp3 reader and writer keep no state between calls, but are not documented as thread-safe
+        return new MetadataXpp3Reader().read(new ByteArrayInputStream(data));
     }
 
     public static void write(Path path, Metadata metadata) throws IOException {
@@ -33,6 +42,9 @@ public class MetadataIO {
     }
 
     public static void write(OutputStream outputStream, Metadata metadata) throws IOException {
-        XML_WRITER.write(outputStream, metadata);
+        if (MetadataWriter.canWrite(metadata))
+            MetadataWriter.write(outputStream, metadata);
+        else
+            new MetadataXpp3Writer().write(outputStream, metadata);
     }
 }
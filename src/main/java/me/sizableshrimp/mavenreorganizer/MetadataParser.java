@@ -0,0 +1,507 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses the subset of {@code maven-metadata.xml} this program deals with straight from the UTF-8 bytes:
+ * groupId, artifactId, version, versioning (latest, release, versions, lastUpdated) and snapshot.
+ * <p>
+ * Element names are compared as bytes, and the only allocations are the model objects and their string values.
+ * Every parse uses its own state, so this is safe to use from any number of threads.
+ * <p>
+ * Anything outside that subset (plugins, snapshotVersions, unknown or duplicate elements or attributes, other encodings, CDATA, DTDs,
+ * malformed UTF-8, characters XML does not allow, ...) makes {@link #parse(byte[])} return {@code null}, so the caller can fall back
+ * to the full {@code MetadataXpp3Reader} and get exactly the same result or error as before.
+ */
+public class MetadataParser {
+    private static final byte[] METADATA = bytes("metadata");
+    private static final byte[] GROUP_ID = bytes("groupId");
+    private static final byte[] ARTIFACT_ID = bytes("artifactId");
+    private static final byte[] VERSION = bytes("version");
+    private static final byte[] VERSIONING = bytes("versioning");
+    private static final byte[] LATEST = bytes("latest");
+    private static final byte[] RELEASE = bytes("release");
+    private static final byte[] VERSIONS = bytes("versions");
+    private static final byte[] LAST_UPDATED = bytes("lastUpdated");
+    private static final byte[] SNAPSHOT = bytes("snapshot");
+    private static final byte[] TIMESTAMP = bytes("timestamp");
+    private static final byte[] BUILD_NUMBER = bytes("buildNumber");
+    private static final byte[] LOCAL_COPY = bytes("localCopy");
+    private static final byte[] MODEL_VERSION = bytes("modelVersion");
+    private final byte[] data;
+    private int pos;
+    private int nameStart;
+    private int nameEnd;
+    private boolean emptyElement;
+    private String encoding;
+
+    private MetadataParser(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * @return the parsed metadata, or {@code null} if the content is outside the supported subset
+     */
+    public static Metadata parse(byte[] data) {
+        try {
+            return new MetadataParser(data).parseDocument();
+        } catch (Unsupported | NumberFormatException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private Metadata parseDocument() {
+        // UTF-8 byte order mark
+        if (this.data.length >= 3 && (this.data[0] & 0xFF) == 0xEF && (this.data[1] & 0xFF) == 0xBB && (this.data[2] & 0xFF) == 0xBF)
+            this.pos = 3;
+        parseDeclaration();
+        skipMisc();
+
+        Metadata metadata = new Metadata();
+        // Like the Xpp3 reader, keep the encoding exactly as declared so the writer declares it the same way
+        metadata.setModelEncoding(this.encoding);
+        if (!startTag(true) || !nameIs(METADATA))
+            throw Unsupported.INSTANCE;
+        parseRootAttributes(metadata);
+        if (this.emptyElement)
+            throw Unsupported.INSTANCE;
+
+        int seen = 0;
+        while (startTag(false)) {
+            if (nameIs(GROUP_ID)) {
+                seen = markSeen(seen, 1);
+                metadata.setGroupId(text());
+            } else if (nameIs(ARTIFACT_ID)) {
+                seen = markSeen(seen, 2);
+                metadata.setArtifactId(text());
+            } else if (nameIs(VERSION)) {
+                seen = markSeen(seen, 4);
+                metadata.setVersion(text());
+            } else if (nameIs(VERSIONING)) {
+                seen = markSeen(seen, 8);
+                metadata.setVersioning(parseVersioning());
+            } else {
+                throw Unsupported.INSTANCE;
+            }
+        }
+        endTag(METADATA);
+
+        skipMisc();
+        if (this.pos != this.data.length)
+            throw Unsupported.INSTANCE;
+        return metadata;
+    }
+
+    private Versioning parseVersioning() {
+        Versioning versioning = new Versioning();
+        if (this.emptyElement)
+            return versioning;
+
+        int seen = 0;
+        while (startTag(false)) {
+            if (nameIs(LATEST)) {
+                seen = markSeen(seen, 1);
+                versioning.setLatest(text());
+            } else if (nameIs(RELEASE)) {
+                seen = markSeen(seen, 2);
+                versioning.setRelease(text());
+            } else if (nameIs(VERSIONS)) {
+                seen = markSeen(seen, 4);
+                if (this.emptyElement)
+                    continue;
+                while (startTag(false)) {
+                    if (!nameIs(VERSION))
+                        throw Unsupported.INSTANCE;
+                    versioning.addVersion(text());
+                }
+                endTag(VERSIONS);
+            } else if (nameIs(LAST_UPDATED)) {
+                seen = markSeen(seen, 8);
+                versioning.setLastUpdated(text());
+            } else if (nameIs(SNAPSHOT)) {
+                seen = markSeen(seen, 16);
+                versioning.setSnapshot(parseSnapshot());
+            } else {
+                throw Unsupported.INSTANCE;
+            }
+        }
+        endTag(VERSIONING);
+        return versioning;
+    }
+
+    private Snapshot parseSnapshot() {
+        Snapshot snapshot = new Snapshot();
+        if (this.emptyElement)
+            return snapshot;
+
+        int seen = 0;
+        while (startTag(false)) {
+            if (nameIs(TIMESTAMP)) {
+                seen = markSeen(seen, 1);
+                snapshot.setTimestamp(text());
+            } else if (nameIs(BUILD_NUMBER)) {
+                seen = markSeen(seen, 2);
+                String buildNumber = text();
+                if (buildNumber.isEmpty() || !isDigits(buildNumber))
+                    throw Unsupported.INSTANCE;
+                snapshot.setBuildNumber(Integer.parseInt(buildNumber));
+            } else if (nameIs(LOCAL_COPY)) {
+                seen = markSeen(seen, 4);
+                String localCopy = text();
+                if (!localCopy.equals("true") && !localCopy.equals("false"))
+                    throw Unsupported.INSTANCE;
+                snapshot.setLocalCopy(localCopy.equals("true"));
+            } else {
+                throw Unsupported.INSTANCE;
+            }
+        }
+        endTag(SNAPSHOT);
+        return snapshot;
+    }
+
+    // Duplicated elements are an error for the strict reader, so leave them to it
+    private static int markSeen(int seen, int flag) {
+        if ((seen & flag) != 0)
+            throw Unsupported.INSTANCE;
+        return seen | flag;
+    }
+
+    private void parseDeclaration() {
+        if (!startsWith("<?xml"))
+            return;
+
+        int end = indexOf("?>", this.pos);
+        if (end == -1)
+            throw Unsupported.INSTANCE;
+
+        String declaration = new String(this.data, this.pos, end - this.pos, StandardCharsets.US_ASCII);
+        int encoding = declaration.indexOf("encoding");
+        if (encoding != -1) {
+            int quote = encoding + "encoding".length();
+            while (quote < declaration.length() && declaration.charAt(quote) != '"' && declaration.charAt(quote) != '\'')
+                quote++;
+            int valueEnd = declaration.indexOf(declaration.charAt(quote), quote + 1);
+            this.encoding = declaration.substring(quote + 1, valueEnd);
+            if (!this.encoding.equalsIgnoreCase("UTF-8"))
+                throw Unsupported.INSTANCE;
+        }
+
+        this.pos = end + 2;
+    }
+
+    // Skips whitespace and comments between elements
+    private void skipMisc() {
+        while (this.pos < this.data.length) {
+            if (isWhitespace(this.data[this.pos])) {
+                this.pos++;
+            } else if (startsWith("<!--")) {
+                int end = indexOf("-->", this.pos + 4);
+                if (end == -1)
+                    throw Unsupported.INSTANCE;
+                this.pos = end + 3;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the next start tag, leaving its name in {@link #nameStart} and {@link #nameEnd}.
+     *
+     * @return {@code false} if the next tag is an end tag instead, which is left unread
+     */
+    private boolean startTag(boolean root) {
+        skipMisc();
+        if (this.data[this.pos] != '<')
+            throw Unsupported.INSTANCE;
+        if (this.data[this.pos + 1] == '/')
+            return false;
+        if (this.data[this.pos + 1] == '!' || this.data[this.pos + 1] == '?')
+            throw Unsupported.INSTANCE;
+
+        this.pos++;
+        readName();
+        if (!root)
+            closeStartTag();
+        return true;
+    }
+
+    private void closeStartTag() {
+        skipWhitespace();
+        if (this.data[this.pos] == '/' && this.data[this.pos + 1] == '>') {
+            this.emptyElement = true;
+            this.pos += 2;
+        } else if (this.data[this.pos] == '>') {
+            this.emptyElement = false;
+            this.pos++;
+        } else {
+            throw Unsupported.INSTANCE;
+        }
+    }
+
+    private void parseRootAttributes(Metadata metadata) {
+        // Start and end of the names of the attributes read so far
+        int[] names = new int[8];
+        int nameCount = 0;
+        while (true) {
+            skipWhitespace();
+            byte b = this.data[this.pos];
+            if (b == '>' || b == '/') {
+                closeStartTag();
+                return;
+            }
+
+            readName();
+            int attributeStart = this.nameStart;
+            int attributeEnd = this.nameEnd;
+            for (int i = 0; i < nameCount; i += 2) {
+                if (regionEquals(attributeStart, attributeEnd, this.data, names[i], names[i + 1]))
+                    throw Unsupported.INSTANCE;
+            }
+            if (nameCount == names.length)
+                throw Unsupported.INSTANCE;
+            names[nameCount++] = attributeStart;
+            names[nameCount++] = attributeEnd;
+            skipWhitespace();
+            if (this.data[this.pos++] != '=')
+                throw Unsupported.INSTANCE;
+            skipWhitespace();
+            byte quote = this.data[this.pos++];
+            if (quote != '"' && quote != '\'')
+                throw Unsupported.INSTANCE;
+            int valueStart = this.pos;
+            while (this.data[this.pos] != quote) {
+                // Markup and the whitespace that attribute values normalize to spaces are left to the full reader
+                byte c = this.data[this.pos];
+                if (c == '<' || c == '\t' || c == '\n')
+                    throw Unsupported.INSTANCE;
+                this.pos++;
+            }
+            int valueEnd = this.pos++;
+
+            this.nameStart = attributeStart;
+            this.nameEnd = attributeEnd;
+            if (nameIs(MODEL_VERSION)) {
+                metadata.setModelVersion(decode(valueStart, valueEnd).trim());
+            } else if (!nameStartsWith("xmlns") && !nameStartsWith("xsi:")) {
+                throw Unsupported.INSTANCE;
+            }
+        }
+    }
+
+    // Text of a leaf element up to and including its end tag, trimmed like the Xpp3 reader does
+    private String text() {
+        if (this.emptyElement)
+            return "";
+
+        int start = this.pos;
+        while (this.data[this.pos] != '<')
+            this.pos++;
+        String text = decode(start, this.pos).trim();
+
+        if (this.data[this.pos + 1] != '/')
+            throw Unsupported.INSTANCE;
+        this.pos += 2;
+        int end = this.pos;
+        while (!isWhitespace(this.data[end]) && this.data[end] != '>')
+            end++;
+        if (!regionEquals(this.pos, end, this.data, this.nameStart, this.nameEnd))
+            throw Unsupported.INSTANCE;
+        this.pos = end;
+        skipWhitespace();
+        if (this.data[this.pos++] != '>')
+            throw Unsupported.INSTANCE;
+        return text;
+    }
+
+    private void endTag(byte[] name) {
+        skipMisc();
+        if (this.data[this.pos] != '<' || this.data[this.pos + 1] != '/')
+            throw Unsupported.INSTANCE;
+        this.pos += 2;
+        readName();
+        if (!nameIs(name))
+            throw Unsupported.INSTANCE;
+        skipWhitespace();
+        if (this.data[this.pos++] != '>')
+            throw Unsupported.INSTANCE;
+    }
+
+    private void readName() {
+        this.nameStart = this.pos;
+        while (true) {
+            byte b = this.data[this.pos];
+            if (isWhitespace(b) || b == '>' || b == '/' || b == '=')
+                break;
+            this.pos++;
+        }
+        this.nameEnd = this.pos;
+        if (this.nameStart == this.nameEnd)
+            throw Unsupported.INSTANCE;
+    }
+
+    private String decode(int start, int end) {
+        boolean plain = true;
+        boolean ascii = true;
+        for (int i = start; i < end; i++) {
+            byte b = this.data[i];
+            if (b == '&')
+                plain = false;
+            else if (b == '\r' || b == '>')
+                throw Unsupported.INSTANCE; // Leave line ending normalization and stray markup to the full reader
+            else if (b < 0)
+                ascii = false;
+            else if (b < 0x20 && b != '\t' && b != '\n')
+                throw Unsupported.INSTANCE;
+        }
+        if (plain)
+            return decodeUtf8(start, end, ascii);
+
+        StringBuilder builder = new StringBuilder(end - start);
+        int segmentStart = start;
+        for (int i = start; i < end; i++) {
+            if (this.data[i] != '&')
+                continue;
+
+            builder.append(decodeUtf8(segmentStart, i, ascii));
+            int semicolon = i + 1;
+            while (semicolon < end && this.data[semicolon] != ';')
+                semicolon++;
+            if (semicolon == end)
+                throw Unsupported.INSTANCE;
+
+            String entity = new String(this.data, i + 1, semicolon - i - 1, StandardCharsets.US_ASCII);
+            switch (entity) {
+                case "lt" -> builder.append('<');
+                case "gt" -> builder.append('>');
+                case "amp" -> builder.append('&');
+                case "quot" -> builder.append('"');
+                case "apos" -> builder.append('\'');
+                default -> builder.appendCodePoint(parseCharacterReference(entity));
+            }
+            i = semicolon;
+            segmentStart = semicolon + 1;
+        }
+        builder.append(decodeUtf8(segmentStart, end, ascii));
+        return builder.toString();
+    }
+
+    // Malformed input would be replaced by the decoder of a String, and is left to the full reader to reject instead
+    private String decodeUtf8(int start, int end, boolean ascii) {
+        if (ascii)
+            return new String(this.data, start, end - start, StandardCharsets.US_ASCII);
+
+        try {
+            return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(this.data, start, end - start)).toString();
+        } catch (CharacterCodingException e) {
+            throw Unsupported.INSTANCE;
+        }
+    }
+
+    // The code point of a reference such as #65 or #x41, if it is a character that can appear in metadata
+    private static int parseCharacterReference(String entity) {
+        int codePoint;
+        if (entity.startsWith("#x") && entity.length() > 2 && entity.length() <= 8 && isHexDigits(entity.substring(2)))
+            codePoint = Integer.parseInt(entity.substring(2), 16);
+        else if (entity.startsWith("#") && entity.length() > 1 && entity.length() <= 8 && isDigits(entity.substring(1)))
+            codePoint = Integer.parseInt(entity.substring(1));
+        else
+            throw Unsupported.INSTANCE;
+
+        // Characters XML allows, except for carriage returns which are left to the full reader like raw ones
+        boolean allowed = codePoint == '\t' || codePoint == '\n'
+                || codePoint >= 0x20 && codePoint <= 0xD7FF
+                || codePoint >= 0xE000 && codePoint <= 0xFFFD
+                || codePoint >= 0x10000 && codePoint <= 0x10FFFF;
+        if (!allowed)
+            throw Unsupported.INSTANCE;
+        return codePoint;
+    }
+
+    private void skipWhitespace() {
+        while (isWhitespace(this.data[this.pos]))
+            this.pos++;
+    }
+
+    private boolean nameIs(byte[] name) {
+        return regionEquals(this.nameStart, this.nameEnd, name, 0, name.length);
+    }
+
+    private boolean nameStartsWith(String prefix) {
+        byte[] prefixBytes = bytes(prefix);
+        return this.nameEnd - this.nameStart >= prefixBytes.length && regionEquals(this.nameStart, this.nameStart + prefixBytes.length, prefixBytes, 0, prefixBytes.length);
+    }
+
+    private boolean regionEquals(int start, int end, byte[] other, int otherStart, int otherEnd) {
+        if (end - start != otherEnd - otherStart)
+            return false;
+        for (int i = 0; i < end - start; i++) {
+            if (this.data[start + i] != other[otherStart + i])
+                return false;
+        }
+        return true;
+    }
+
+    private boolean startsWith(String prefix) {
+        if (this.data.length - this.pos < prefix.length())
+            return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (this.data[this.pos + i] != prefix.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private int indexOf(String needle, int from) {
+        outer:
+        for (int i = from; i <= this.data.length - needle.length(); i++) {
+            for (int j = 0; j < needle.length(); j++) {
+                if (this.data[i + j] != needle.charAt(j))
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isDigits(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9')
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isHexDigits(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f') && (c < 'A' || c > 'F'))
+                return false;
+        }
+        return true;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Thrown to bail out to the full reader, without the cost of a stack trace
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes the subset of {@code maven-metadata.xml} read by {@link MetadataParser}, byte for byte the same as {@code MetadataXpp3Writer}
+ * with its two space indentation and {@code \n} line separator. The document is built in a local buffer and written with a single call.
+ * <p>
+ * Only metadata for which {@link #canWrite(Metadata)} is true can be written: everything else (plugins, snapshotVersions, empty elements,
+ * other encodings, values that would need escaping, ...) has to go through the full writer.
+ */
+public class MetadataWriter {
+    private static final byte[] DECLARATION = Buffer.ascii("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+
+    public static boolean canWrite(Metadata metadata) {
+        if (!"UTF-8".equals(metadata.getModelEncoding()) || !metadata.getPlugins().isEmpty())
+            return false;
+        if (!isPlain(metadata.getModelVersion()) || !isPlain(metadata.getGroupId()) || !isPlain(metadata.getArtifactId()) || !isPlain(metadata.getVersion()))
+            return false;
+
+        Versioning versioning = metadata.getVersioning();
+        if (versioning == null)
+            return metadata.getGroupId() != null || metadata.getArtifactId() != null || metadata.getVersion() != null;
+
+        if (!versioning.getSnapshotVersions().isEmpty())
+            return false;
+        if (!isPlain(versioning.getLatest()) || !isPlain(versioning.getRelease()) || !isPlain(versioning.getLastUpdated()))
+            return false;
+        for (String version : versioning.getVersions()) {
+            if (version == null || !isPlain(version))
+                return false;
+        }
+
+        Snapshot snapshot = versioning.getSnapshot();
+        if (snapshot != null && (!isPlain(snapshot.getTimestamp()) || snapshot.getTimestamp() == null && snapshot.getBuildNumber() == 0 && !snapshot.isLocalCopy()))
+            return false;
+
+        // An empty versioning element is written as <versioning/>
+        return versioning.getLatest() != null || versioning.getRelease() != null || !versioning.getVersions().isEmpty()
+                || versioning.getLastUpdated() != null || snapshot != null;
+    }
+
+    public static void write(OutputStream out, Metadata metadata) throws IOException {
+        Buffer buffer = new Buffer();
+        buffer.append(DECLARATION);
+
+        buffer.newLine(0).append('<').append("metadata");
+        if (metadata.getModelVersion() != null)
+            buffer.append(" modelVersion=\"").append(metadata.getModelVersion()).append('"');
+        buffer.append('>');
+
+        buffer.element(1, "groupId", metadata.getGroupId());
+        buffer.element(1, "artifactId", metadata.getArtifactId());
+
+        Versioning versioning = metadata.getVersioning();
+        if (versioning != null) {
+            buffer.startTag(1, "versioning");
+            buffer.element(2, "latest", versioning.getLatest());
+            buffer.element(2, "release", versioning.getRelease());
+            if (!versioning.getVersions().isEmpty()) {
+                buffer.startTag(2, "versions");
+                for (String version : versioning.getVersions()) {
+                    buffer.element(3, "version", version);
+                }
+                buffer.endTag(2, "versions");
+            }
+            buffer.element(2, "lastUpdated", versioning.getLastUpdated());
+
+            Snapshot snapshot = versioning.getSnapshot();
+            if (snapshot != null) {
+                buffer.startTag(2, "snapshot");
+                buffer.element(3, "timestamp", snapshot.getTimestamp());
+                if (snapshot.getBuildNumber() != 0)
+                    buffer.element(3, "buildNumber", Integer.toString(snapshot.getBuildNumber()));
+                if (snapshot.isLocalCopy())
+                    buffer.element(3, "localCopy", "true");
+                buffer.endTag(2, "snapshot");
+            }
+            buffer.endTag(1, "versioning");
+        }
+
+        buffer.element(1, "version", metadata.getVersion());
+        buffer.endTag(0, "metadata");
+        buffer.append('\n');
+
+        out.write(buffer.bytes, 0, buffer.size);
+    }
+
+    // Printable ASCII that the serializer writes as is, empty values are left to it as well
+    private static boolean isPlain(String value) {
+        if (value == null)
+            return true;
+        if (value.isEmpty())
+            return false;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c > 0x7E || c == '&' || c == '<' || c == '>' || c == '"' || c == '\'')
+                return false;
+        }
+        return true;
+    }
+
+    private static final class Buffer {
+        private byte[] bytes = new byte[512];
+        private int size;
+
+        private static byte[] ascii(String s) {
+            byte[] bytes = new byte[s.length()];
+            for (int i = 0; i < s.length(); i++) {
+                bytes[i] = (byte) s.charAt(i);
+            }
+            return bytes;
+        }
+
+        private Buffer element(int depth, String name, String text) {
+            if (text == null)
+                return this;
+            return newLine(depth).append('<').append(name).append('>').append(text).append("</").append(name).append('>');
+        }
+
+        private Buffer startTag(int depth, String name) {
+            return newLine(depth).append('<').append(name).append('>');
+        }
+
+        private Buffer endTag(int depth, String name) {
+            return newLine(depth).append("</").append(name).append('>');
+        }
+
+        private Buffer newLine(int depth) {
+            append('\n');
+            for (int i = 0; i < depth; i++) {
+                append("  ");
+            }
+            return this;
+        }
+
+        private Buffer append(byte[] b) {
+            ensureCapacity(b.length);
+            System.arraycopy(b, 0, this.bytes, this.size, b.length);
+            this.size += b.length;
+            return this;
+        }
+
+        // Only called with printable ASCII, see isPlain
+        private Buffer append(String s) {
+            ensureCapacity(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                this.bytes[this.size++] = (byte) s.charAt(i);
+            }
+            return this;
+        }
+
+        private Buffer append(char c) {
+            ensureCapacity(1);
+            this.bytes[this.size++] = (byte) c;
+            return this;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (this.size + extra > this.bytes.length)
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + extra));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Feeds every written byte to several hash functions at once, like Guava's {@link com.google.common.hash.HashingOutputStream} does for one.
+ */
+public class MultiHashingOutputStream extends FilterOutputStream {
+    private final Map<String, Hasher> hashers = new LinkedHashMap<>();
+
+    public MultiHashingOutputStream(Map<String, HashFunction> hashFunctions, OutputStream out) {
+        super(out);
+        hashFunctions.forEach((name, hashFunction) -> this.hashers.put(name, hashFunction.newHasher()));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.out.write(b);
+        for (Hasher hasher : this.hashers.values()) {
+            hasher.putByte((byte) b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        this.out.write(b, off, len);
+        for (Hasher hasher : this.hashers.values()) {
+            hasher.putBytes(b, off, len);
+        }
+    }
+
+    /**
+     * Can only be called once, after everything has been written.
+     *
+     * @return hash function name -> hash of all written bytes
+     */
+    public Map<String, HashCode> hashes() {
+        Map<String, HashCode> hashes = new LinkedHashMap<>();
+        this.hashers.forEach((name, hasher) -> hashes.put(name, hasher.hash()));
+        return hashes;
+    }
+}
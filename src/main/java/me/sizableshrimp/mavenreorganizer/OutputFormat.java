@@ -0,0 +1,36 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.output.FileSystemSink;
+import me.sizableshrimp.mavenreorganizer.output.OutputSink;
+import me.sizableshrimp.mavenreorganizer.output.TarSink;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * How the reorganized repos are stored in the output directory.
+ */
+public enum OutputFormat {
+    DIRECTORY,
+    TAR;
+
+    public OutputSink createSink(Path output, LinkMode linkMode) {
+        return switch (this) {
+            case DIRECTORY -> new FileSystemSink(linkMode);
+            case TAR -> new TarSink(output);
+        };
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static OutputFormat byName(String name) {
+        for (OutputFormat format : values()) {
+            if (format.getName().equals(name))
+                return format;
+        }
+
+        throw new IllegalArgumentException("Unknown output format " + name);
+    }
+}
@@ -0,0 +1,5 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import java.nio.file.Path;
+
+public record ReorganizerOptions(boolean simulate, boolean resume, int threads, int walkers, LinkMode linkMode, OutputFormat outputFormat, boolean incremental, boolean verify, boolean metadataCache, int dedupIndexSize, Path routingRules, int watchDebounce, int reportInterval, Path plan) {}
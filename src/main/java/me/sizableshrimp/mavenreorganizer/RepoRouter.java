@@ -0,0 +1,314 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.data.Artifact;
+import me.sizableshrimp.mavenreorganizer.data.MavenVersion;
+import me.sizableshrimp.mavenreorganizer.data.Repo;
+import me.sizableshrimp.mavenreorganizer.data.VersionKey;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps artifacts to the {@link Repo} registered for the deepest matching base path, such as {@code net/minecraftforge}.
+ * <p>
+ * Base paths are stored as a trie of path segments with sorted children, so routing an artifact walks its groupId, artifactId,
+ * version and file name once without building any {@link java.nio.file.Path} or substring.
+ * A {@code *} segment matches any single segment, and the versions of an artifact can be matched by {@link VersionRange}s.
+ * When several base paths of the same depth match, exact segments win over ranges, and ranges over {@code *}.
+ * Only the ranges of the artifact being routed are ever checked, so routing does not get slower with the number of base paths.
+ * Routing allocates nothing, the version is parsed once by the {@link VersionKey} shared by all files of a version.
+ */
+public class RepoRouter {
+    public static final String WILDCARD = "*";
+    private static final int GROUP = 0;
+    private static final int ARTIFACT_ID = 1;
+    private static final int VERSION = 2;
+    private static final int FILE = 3;
+    private static final int NO_REPO = -1;
+    private final Node root;
+    // repo id -> repo, nodes refer to repos by id so a match fits in a long
+    private Repo[] repoTable;
+    private final Map<Repo, Integer> repoIds = new HashMap<>();
+
+    public RepoRouter() {
+        this(new Node(), new Repo[0]);
+    }
+
+    private RepoRouter(Node root, Repo[] repoTable) {
+        this.root = root;
+        this.repoTable = repoTable;
+    }
+
+    public void add(String basePath, Repo repo) {
+        add(Arrays.asList(basePath.split("/")), null, repo);
+    }
+
+    /**
+     * @param segments groupId segments followed by the artifactId and version, if any, where {@code *} matches any single segment
+     * @param versions versions of the artifact given by the segments that are routed, or null to match by the segments alone
+     */
+    public void add(List<String> segments, VersionRange versions, Repo repo) {
+        Node node = this.root;
+        for (String segment : segments) {
+            node = WILDCARD.equals(segment) ? node.getOrCreateWildcard() : node.getOrCreateChild(segment);
+        }
+
+        if (versions == null && node.repo != NO_REPO)
+            throw new IllegalStateException("Duplicate repo path of " + String.join("/", segments));
+
+        Integer repoId = this.repoIds.get(repo);
+        if (repoId == null) {
+            repoId = this.repoTable.length;
+            this.repoTable = Arrays.copyOf(this.repoTable, repoId + 1);
+            this.repoTable[repoId] = repo;
+            this.repoIds.put(repo, repoId);
+        }
+
+        if (versions != null) {
+            node.ranges = Arrays.copyOf(node.ranges, node.ranges.length + 1);
+            node.ranges[node.ranges.length - 1] = versions;
+            node.rangeRepos = Arrays.copyOf(node.rangeRepos, node.rangeRepos.length + 1);
+            node.rangeRepos[node.rangeRepos.length - 1] = repoId;
+        } else {
+            node.repo = repoId;
+        }
+    }
+
+    public Set<Repo> getRepos() {
+        Set<Repo> repos = new HashSet<>();
+        this.root.collectRepos(this.repoTable, repos);
+        return Collections.unmodifiableSet(repos);
+    }
+
+    public Repo route(Artifact artifact) {
+        long match = search(this.root, artifact, GROUP, 0, 0, 0L);
+        return depth(match) > 0 ? this.repoTable[(int) match] : null;
+    }
+
+    /**
+     * @param match the deepest match so far, as returned by {@link #match(int, int)}
+     * @return the deepest match after also searching this node
+     */
+    private static long search(Node node, Artifact artifact, int part, int start, int depth, long match) {
+        if (node.repo != NO_REPO && depth > depth(match))
+            match = match(depth, node.repo);
+        if (part > FILE)
+            return match;
+
+        String s = switch (part) {
+            case GROUP -> artifact.groupId();
+            case ARTIFACT_ID -> artifact.artifactId();
+            case VERSION -> artifact.version();
+            default -> artifact.file();
+        };
+        if (s == null)
+            return match;
+
+        int end = s.length();
+        int nextPart = part + 1;
+        int nextStart = 0;
+        if (part == GROUP) {
+            int dot = s.indexOf('.', start);
+            if (dot != -1) {
+                end = dot;
+                nextPart = GROUP;
+                nextStart = dot + 1;
+            }
+        }
+
+        Node child = node.getChild(s, start, end);
+        if (child != null)
+            match = search(child, artifact, nextPart, nextStart, depth + 1, match);
+
+        if (part == VERSION && node.ranges.length > 0 && depth + 1 > depth(match)) {
+            MavenVersion version = artifact.coordinates().getMavenVersion();
+            for (int i = 0; i < node.ranges.length; i++) {
+                if (node.ranges[i].contains(version)) {
+                    match = match(depth + 1, node.rangeRepos[i]);
+                    break;
+                }
+            }
+        }
+
+        if (node.wildcard != null)
+            match = search(node.wildcard, artifact, nextPart, nextStart, depth + 1, match);
+        return match;
+    }
+
+    // The depth of a match in the upper half, and the repo id in the lower half
+    private static long match(int depth, int repoId) {
+        return (long) depth << 32 | repoId & 0xFFFFFFFFL;
+    }
+
+    private static int depth(long match) {
+        return (int) (match >>> 32);
+    }
+
+    /**
+     * Writes the trie in a form that {@link #read(DataInput, Repo[])} can load without building it up again.
+     *
+     * @param repoIds repo -> index written in its place
+     */
+    public void write(DataOutput out, Map<Repo, Integer> repoIds) throws IOException {
+        int[] writtenIds = new int[this.repoTable.length];
+        for (int i = 0; i < writtenIds.length; i++) {
+            writtenIds[i] = repoIds.get(this.repoTable[i]);
+        }
+        this.root.write(out, writtenIds);
+    }
+
+    public static RepoRouter read(DataInput in, Repo[] repos) throws IOException {
+        // The written ids index into repos, so they are used as they are
+        RepoRouter router = new RepoRouter(Node.read(in, repos.length), repos.clone());
+        for (int i = 0; i < repos.length; i++) {
+            router.repoIds.put(repos[i], i);
+        }
+        return router;
+    }
+
+    private static final class Node {
+        private static final String[] NO_SEGMENTS = new String[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final VersionRange[] NO_RANGES = new VersionRange[0];
+        private static final int[] NO_REPOS = new int[0];
+        // Sorted, so children can be found with a binary search over a region of the artifact's coordinates
+        private String[] segments = NO_SEGMENTS;
+        private Node[] children = NO_CHILDREN;
+        private Node wildcard;
+        private int repo = NO_REPO;
+        // Ranges over the versions of the artifact this node stands for, checked in the order they were added
+        private VersionRange[] ranges = NO_RANGES;
+        private int[] rangeRepos = NO_REPOS;
+
+        private Node getChild(String s, int start, int end) {
+            int low = 0;
+            int high = this.segments.length - 1;
+
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(this.segments[mid], s, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return this.children[mid];
+                }
+            }
+
+            return null;
+        }
+
+        private Node getOrCreateChild(String segment) {
+            int idx = Arrays.binarySearch(this.segments, segment);
+            if (idx >= 0)
+                return this.children[idx];
+
+            int insertAt = -idx - 1;
+            Node child = new Node();
+            this.segments = insert(this.segments, insertAt, segment, new String[this.segments.length + 1]);
+            this.children = insert(this.children, insertAt, child, new Node[this.children.length + 1]);
+            return child;
+        }
+
+        private Node getOrCreateWildcard() {
+            if (this.wildcard == null)
+                this.wildcard = new Node();
+            return this.wildcard;
+        }
+
+        private void write(DataOutput out, int[] writtenIds) throws IOException {
+            out.writeInt(this.repo == NO_REPO ? NO_REPO : writtenIds[this.repo]);
+            out.writeInt(this.segments.length);
+            for (int i = 0; i < this.segments.length; i++) {
+                out.writeUTF(this.segments[i]);
+                this.children[i].write(out, writtenIds);
+            }
+            out.writeBoolean(this.wildcard != null);
+            if (this.wildcard != null)
+                this.wildcard.write(out, writtenIds);
+            out.writeInt(this.ranges.length);
+            for (int i = 0; i < this.ranges.length; i++) {
+                out.writeUTF(this.ranges[i].toString());
+                out.writeInt(writtenIds[this.rangeRepos[i]]);
+            }
+        }
+
+        private static Node read(DataInput in, int repoCount) throws IOException {
+            Node node = new Node();
+            node.repo = readRepoId(in, repoCount, true);
+
+            int childCount = in.readInt();
+            if (childCount > 0) {
+                // Written in sorted order, so the arrays can be filled directly
+                node.segments = new String[childCount];
+                node.children = new Node[childCount];
+                for (int i = 0; i < childCount; i++) {
+                    node.segments[i] = in.readUTF();
+                    node.children[i] = read(in, repoCount);
+                }
+            }
+            if (in.readBoolean())
+                node.wildcard = read(in, repoCount);
+
+            int rangeCount = in.readInt();
+            if (rangeCount > 0) {
+                node.ranges = new VersionRange[rangeCount];
+                node.rangeRepos = new int[rangeCount];
+                for (int i = 0; i < rangeCount; i++) {
+                    node.ranges[i] = VersionRange.parse(in.readUTF());
+                    node.rangeRepos[i] = readRepoId(in, repoCount, false);
+                }
+            }
+            return node;
+        }
+
+        private static int readRepoId(DataInput in, int repoCount, boolean optional) throws IOException {
+            int repoId = in.readInt();
+            if ((repoId != NO_REPO || !optional) && (repoId < 0 || repoId >= repoCount))
+                throw new IOException("Invalid repo id " + repoId + " in compiled routing rules");
+            return repoId;
+        }
+
+        private void collectRepos(Repo[] repoTable, Set<Repo> repos) {
+            if (this.repo != NO_REPO)
+                repos.add(repoTable[this.repo]);
+            for (int repoId : this.rangeRepos) {
+                repos.add(repoTable[repoId]);
+            }
+            for (Node child : this.children) {
+                child.collectRepos(repoTable, repos);
+            }
+            if (this.wildcard != null)
+                this.wildcard.collectRepos(repoTable, repos);
+        }
+
+        private static <T> T[] insert(T[] array, int index, T value, T[] newArray) {
+            System.arraycopy(array, 0, newArray, 0, index);
+            newArray[index] = value;
+            System.arraycopy(array, index, newArray, index + 1, array.length - index);
+            return newArray;
+        }
+
+        // Same ordering as String#compareTo, against s.substring(start, end)
+        private static int compare(String segment, String s, int start, int end) {
+            int len = end - start;
+            int limit = Math.min(segment.length(), len);
+            for (int i = 0; i < limit; i++) {
+                char c1 = segment.charAt(i);
+                char c2 = s.charAt(start + i);
+                if (c1 != c2)
+                    return c1 - c2;
+            }
+            return segment.length() - len;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.data.Repo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which output repo the artifacts of each source folder are routed to, compiled from a rules file into a {@link RepoRouter} per source folder.
+ * The format is described at the top of the bundled {@code routing_rules.txt}, which holds the default rules.
+ * <p>
+ * Compiled rules can be cached in a binary file, keyed by the path, size and modified time of the rules file,
+ * so large rule sets are not parsed and inserted one by one on every start.
+ */
+public class RoutingRules {
+    public static final String DEFAULT_RESOURCE = "/routing_rules.txt";
+    public static final String CACHE_FILE_NAME = ".reorganizer-routing-cache";
+    private static final int MAGIC = 0x4D525243; // MRRC
+    private static final int FORMAT_VERSION = 1;
+    private final RepoRouter releases;
+    private final RepoRouter proxy;
+
+    private RoutingRules(RepoRouter releases, RepoRouter proxy) {
+        this.releases = releases;
+        this.proxy = proxy;
+    }
+
+    public RepoRouter releases() {
+        return this.releases;
+    }
+
+    public RepoRouter proxy() {
+        return this.proxy;
+    }
+
+    public static RoutingRules loadDefault() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(RoutingRules.class.getResourceAsStream(DEFAULT_RESOURCE), StandardCharsets.UTF_8))) {
+            return parse(reader, DEFAULT_RESOURCE);
+        }
+    }
+
+    /**
+     * @param cachePath where compiled rules are cached, or null to always parse the rules file
+     */
+    public static RoutingRules load(Path rulesFile, Path cachePath) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(rulesFile, BasicFileAttributes.class);
+        String key = rulesFile.toAbsolutePath().normalize().toString();
+
+        if (cachePath != null) {
+            RoutingRules cached = readCache(cachePath, key, attributes);
+            if (cached != null)
+                return cached;
+        }
+
+        RoutingRules rules;
+        try (BufferedReader reader = Files.newBufferedReader(rulesFile, StandardCharsets.UTF_8)) {
+            rules = parse(reader, rulesFile.toString());
+        }
+        if (cachePath != null)
+            rules.writeCache(cachePath, key, attributes);
+        return rules;
+    }
+
+    public static RoutingRules parse(BufferedReader reader, String source) throws IOException {
+        RepoRouter releases = new RepoRouter();
+        RepoRouter proxy = new RepoRouter();
+        Map<String, Repo> repos = new HashMap<>();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment != -1)
+                line = line.substring(0, comment);
+            line = line.strip();
+            if (line.isEmpty())
+                continue;
+
+            try {
+                String[] columns = line.split("\\s+");
+                if (columns.length != 3)
+                    throw new IllegalArgumentException("Expected <source folders> <repo> <pattern> but got " + columns.length + " columns");
+
+                List<RepoRouter> routers = new ArrayList<>(2);
+                for (String folder : columns[0].split(",")) {
+                    switch (folder) {
+                        case "releases" -> routers.add(releases);
+                        case "proxy" -> routers.add(proxy);
+                        default -> throw new IllegalArgumentException("Unknown source folder " + folder + ", expected releases or proxy");
+                    }
+                }
+
+                String repoName = columns[1];
+                if (repoName.contains("/") || repoName.contains("\\"))
+                    throw new IllegalArgumentException("Repo name cannot contain a path separator: " + repoName);
+                Repo repo = repos.computeIfAbsent(repoName, Repo::create);
+
+                String[] parts = columns[2].split(":", -1);
+                if (parts.length > 3)
+                    throw new IllegalArgumentException("Pattern has more than groupId, artifactId and version: " + columns[2]);
+
+                List<String> segments = new ArrayList<>(Arrays.asList(parts[0].split("\\.", -1)));
+                VersionRange versions = null;
+                if (parts.length > 1)
+                    segments.add(parts[1]);
+                if (parts.length > 2) {
+                    if (VersionRange.isRange(parts[2])) {
+                        versions = VersionRange.parse(parts[2]);
+                    } else {
+                        segments.add(parts[2]);
+                    }
+                }
+                for (String segment : segments) {
+                    if (segment.isEmpty())
+                        throw new IllegalArgumentException("Empty segment in pattern " + columns[2]);
+                    if (segment.contains(RepoRouter.WILDCARD) && !segment.equals(RepoRouter.WILDCARD))
+                        throw new IllegalArgumentException("A wildcard has to be a whole segment in pattern " + columns[2]);
+                    if (VersionRange.isRange(segment))
+                        throw new IllegalArgumentException("Version ranges are only allowed as the version in pattern " + columns[2]);
+                }
+
+                for (RepoRouter router : routers) {
+                    router.add(segments, versions, repo);
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw new IllegalArgumentException("Error in routing rules " + source + " on line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        return new RoutingRules(releases, proxy);
+    }
+
+    /**
+     * @return the cached rules, or null if there are none for this rules file. A cache that cannot be read counts as missing, since it is written again
+     */
+    private static RoutingRules readCache(Path cachePath, String key, BasicFileAttributes attributes) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cachePath), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                return null;
+            if (!in.readUTF().equals(key) || in.readLong() != attributes.size() || in.readLong() != attributes.lastModifiedTime().toMillis())
+                return null;
+
+            Repo[] repos = new Repo[in.readInt()];
+            for (int i = 0; i < repos.length; i++) {
+                repos[i] = new Repo(Paths.get(in.readUTF()), Paths.get(in.readUTF()));
+            }
+            return new RoutingRules(RepoRouter.read(in, repos), RepoRouter.read(in, repos));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            // Cut short or damaged, such as by a full disk
+            System.err.println("Ignoring unreadable routing rules cache " + cachePath + ": " + e);
+            return null;
+        }
+    }
+
+    private void writeCache(Path cachePath, String key, BasicFileAttributes attributes) throws IOException {
+        Set<Repo> repoSet = new LinkedHashSet<>(this.releases.getRepos());
+        repoSet.addAll(this.proxy.getRepos());
+        Map<Repo, Integer> repoIds = new HashMap<>();
+
+        Path tempPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+        Files.createDirectories(cachePath.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+            out.writeLong(attributes.size());
+            out.writeLong(attributes.lastModifiedTime().toMillis());
+
+            out.writeInt(repoSet.size());
+            for (Repo repo : repoSet) {
+                repoIds.put(repo, repoIds.size());
+                out.writeUTF(repo.releases().toString());
+                out.writeUTF(repo.snapshots().toString());
+            }
+            this.releases.write(out, repoIds);
+            this.proxy.write(out, repoIds);
+
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
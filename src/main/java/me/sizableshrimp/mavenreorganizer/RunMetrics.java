@@ -0,0 +1,210 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe timings and counters for a run, written out as a JSON report at the end.
+ * <p>
+ * Phase times are summed over all threads, so with several threads they can add up to more than the run took.
+ * Rates are computed against the wall clock time of the whole run.
+ */
+public class RunMetrics {
+    public static final String REPORT_FILE_NAME = "reorganizer-report.json";
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final Map<Phase, PhaseMetrics> phases = new EnumMap<>(Phase.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+
+    public RunMetrics() {
+        for (Phase phase : Phase.values()) {
+            this.phases.put(phase, new PhaseMetrics(phase.hasHistogram ? new LatencyHistogram() : null));
+        }
+        for (Counter counter : Counter.values()) {
+            this.counters.put(counter, new LongAdder());
+        }
+    }
+
+    /**
+     * Records one operation of the given phase that started at {@code startNanos}, as returned by {@link System#nanoTime()}.
+     */
+    public void record(Phase phase, long startNanos) {
+        record(phase, startNanos, 0);
+    }
+
+    public void record(Phase phase, long startNanos, long bytes) {
+        recordNanos(phase, System.nanoTime() - startNanos, bytes);
+    }
+
+    /**
+     * Records one operation of the given phase that took {@code nanos} in total, for operations that are not one contiguous span of time.
+     */
+    public void recordNanos(Phase phase, long nanos, long bytes) {
+        PhaseMetrics metrics = this.phases.get(phase);
+        metrics.count.increment();
+        metrics.nanos.add(nanos);
+        if (bytes > 0)
+            metrics.bytes.add(bytes);
+        if (metrics.histogram != null)
+            metrics.histogram.record(nanos);
+    }
+
+    public void increment(Counter counter) {
+        this.counters.get(counter).increment();
+    }
+
+    public void add(Counter counter, long amount) {
+        this.counters.get(counter).add(amount);
+    }
+
+    public long get(Counter counter) {
+        return this.counters.get(counter).sum();
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - this.startNanos;
+    }
+
+    public String getSummary() {
+        double seconds = getElapsedNanos() / 1e9;
+        PhaseMetrics copy = this.phases.get(Phase.COPY);
+        return String.format(Locale.ROOT, "[%.0fs] walked %d files, copied %d (%s, %s/s), skipped %d, unclaimed %d, metadata written %d",
+                seconds, get(Counter.FILES), get(Counter.COPIED), formatBytes(copy.bytes.sum()), formatBytes((long) (copy.bytes.sum() / Math.max(seconds, 1e-9))),
+                get(Counter.SKIPPED), get(Counter.UNCLAIMED), this.phases.get(Phase.METADATA_WRITE).count.sum());
+    }
+
+    public void writeReport(Path path) throws IOException {
+        double seconds = getElapsedNanos() / 1e9;
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"startedAt\": \"").append(this.startedAt).append("\",\n");
+        json.append("  \"durationMillis\": ").append(getElapsedNanos() / 1_000_000).append(",\n");
+
+        json.append("  \"counters\": {");
+        String separator = "\n";
+        for (var entry : this.counters.entrySet()) {
+            json.append(separator).append("    \"").append(entry.getKey().key).append("\": ").append(entry.getValue().sum());
+            separator = ",\n";
+        }
+        json.append("\n  },\n");
+
+        json.append("  \"phases\": {");
+        separator = "\n";
+        for (var entry : this.phases.entrySet()) {
+            PhaseMetrics metrics = entry.getValue();
+            long count = metrics.count.sum();
+            long bytes = metrics.bytes.sum();
+            json.append(separator).append("    \"").append(entry.getKey().key).append("\": {");
+            json.append("\"count\": ").append(count);
+            json.append(", \"totalMillis\": ").append(metrics.nanos.sum() / 1_000_000);
+            json.append(", \"bytes\": ").append(bytes);
+            json.append(", \"perSecond\": ").append(String.format(Locale.ROOT, "%.1f", count / seconds));
+            json.append(", \"bytesPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", bytes / seconds));
+            if (metrics.histogram != null)
+                json.append(", \"latencyMicros\": ").append(metrics.histogram.toJson());
+            json.append('}');
+            separator = ",\n";
+        }
+        json.append("\n  }\n");
+        json.append("}\n");
+
+        Files.writeString(path, json, StandardCharsets.UTF_8);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024)
+            return bytes + " B";
+        int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+        return String.format(Locale.ROOT, "%.1f %siB", bytes / (double) (1L << (unit * 10)), "KMGTPE".charAt(unit - 1));
+    }
+
+    public enum Phase {
+        WALK("walk", false),
+        CLASSIFY("classify", false),
+        ROUTE("route", false),
+        COMPARE("compare", false),
+        COPY("copy", true),
+        METADATA_READ("metadataRead", false),
+        METADATA_WRITE("metadataWrite", false),
+        HASH("hash", true);
+
+        private final String key;
+        private final boolean hasHistogram;
+
+        Phase(String key, boolean hasHistogram) {
+            this.key = key;
+            this.hasHistogram = hasHistogram;
+        }
+    }
+
+    public enum Counter {
+        FILES("files"),
+        COPIED("copied"),
+        SKIPPED("skipped"),
+        UNCLAIMED("unclaimed"),
+        DROPPED("dropped"),
+        REMOVED("removed"),
+        QUARANTINED("quarantined"),
+        DEDUPLICATED("deduplicated"),
+        BYTES_SAVED("bytesSaved");
+
+        private final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    private record PhaseMetrics(LongAdder count, LongAdder nanos, LongAdder bytes, LatencyHistogram histogram) {
+        private PhaseMetrics(LatencyHistogram histogram) {
+            this(new LongAdder(), new LongAdder(), new LongAdder(), histogram);
+        }
+    }
+
+    /**
+     * Counts latencies in power of two buckets of nanoseconds, which is precise enough to tell a slow disk from a stuck one.
+     */
+    private static final class LatencyHistogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+            this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)));
+            this.max.accumulate(nanos);
+        }
+
+        private String toJson() {
+            long total = 0;
+            for (int i = 0; i < this.buckets.length(); i++) {
+                total += this.buckets.get(i);
+            }
+
+            return String.format(Locale.ROOT, "{\"p50\": %d, \"p90\": %d, \"p99\": %d, \"max\": %d}",
+                    percentile(total, 0.5), percentile(total, 0.9), percentile(total, 0.99), this.max.get() / 1000);
+        }
+
+        // Upper bound of the bucket holding the given percentile (capped by the max), in microseconds
+        private long percentile(long total, double percentile) {
+            if (total == 0)
+                return 0;
+
+            long target = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < this.buckets.length(); i++) {
+                seen += this.buckets.get(i);
+                if (seen >= target)
+                    return i == 0 ? 0 : Math.min((1L << Math.min(i, 62)) - 1, this.max.get()) / 1000;
+            }
+            return this.max.get() / 1000;
+        }
+    }
+}
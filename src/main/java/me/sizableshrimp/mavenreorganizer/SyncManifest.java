@@ -0,0 +1,291 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records what a run placed in the output directory, so the next run can skip every source file that has not changed since.
+ * <p>
+ * Entries are keyed by {@code <source folder name>/<relative path>} and the output root of the source file, and store the size
+ * and modified time of the source file. The destination of an entry is its relative path inside that output root.
+ * A source file routed to another output root gets a new entry, so its previous destination is removed like that of a deleted file.
+ * Both source folders can have an entry for the same destination, so whether the output of a destination is up to date
+ * can depend on more than one entry.
+ * <p>
+ * Unchanged entries are only trusted while their destination is still in the output directory. Every output directory is listed once
+ * for that, instead of checking each destination on its own.
+ * <p>
+ * The manifest is only replaced at the end of a successful run, through an atomic move of a fully written temporary file.
+ * An interrupted run leaves the previous manifest in place, which at worst makes the next run process a few files again.
+ */
+public class SyncManifest {
+    public static final String FILE_NAME = ".reorganizer-manifest";
+    private static final int MAGIC = 0x4D52534D; // MRSM
+    private static final int FORMAT_VERSION = 2;
+    private static final int FLAG_METADATA = 1;
+    private final Path path;
+    private final Path outputFolder;
+    // id -> entry, see id(String, String)
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    // output directory relative to the output folder -> names of the files in it
+    private final Map<String, Set<String>> outputListings = new ConcurrentHashMap<>();
+
+    private SyncManifest(Path path, Map<String, Entry> previous) {
+        this.path = path;
+        this.outputFolder = path.getParent();
+        this.previous = previous;
+    }
+
+    public static SyncManifest load(Path outputFolder) throws IOException {
+        Path path = outputFolder.resolve(FILE_NAME);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                System.err.println("Ignoring manifest with unknown format: " + path);
+                return new SyncManifest(path, Map.of());
+            }
+
+            String[] roots = new String[readVarInt(in)];
+            for (int i = 0; i < roots.length; i++) {
+                roots[i] = in.readUTF();
+            }
+
+            int size = readVarInt(in);
+            Map<String, Entry> entries = new HashMap<>(size * 4 / 3 + 1);
+            String key = "";
+            for (int i = 0; i < size; i++) {
+                // Keys are sorted and only store what differs from the previous key
+                int sharedLength = readVarInt(in);
+                key = key.substring(0, sharedLength) + in.readUTF();
+
+                long fileSize = readVarLong(in);
+                long modified = in.readLong();
+                String root = roots[readVarInt(in)];
+                boolean metadata = (in.readUnsignedByte() & FLAG_METADATA) != 0;
+
+                entries.put(id(key, root), new Entry(key, fileSize, modified, root, metadata));
+            }
+
+            return new SyncManifest(path, entries);
+        } catch (NoSuchFileException e) {
+            return new SyncManifest(path, Map.of());
+        }
+    }
+
+    /**
+     * Carries the previous entry for the given key and output root over to the new manifest if the file still has the same size and modified time,
+     * and its destination is still in the output directory.
+     *
+     * @return whether the file is unchanged since the previous run
+     */
+    public boolean keepIfUnchanged(String key, BasicFileAttributes attributes, String root) throws IOException {
+        String id = id(key, root);
+        Entry entry = this.previous.get(id);
+        if (entry == null || !entry.matches(attributes) || !isInOutput(entry.getDestination()))
+            return false;
+
+        this.current.put(id, entry);
+        return true;
+    }
+
+    /**
+     * @param metadata whether this is a {@code maven-metadata.xml} that is rewritten rather than copied
+     */
+    public void record(String key, BasicFileAttributes attributes, String root, boolean metadata) {
+        this.current.put(id(key, root), new Entry(key, attributes.size(), attributes.lastModifiedTime().toMillis(), root, metadata));
+    }
+
+    /**
+     * Drops the listings of the output directories, which go stale once the output is written to.
+     * Called after every run or batch of changes, so the next one lists the output again.
+     */
+    public void clearOutputListings() {
+        this.outputListings.clear();
+    }
+
+    /**
+     * Leaves the entry for the given key and output root out of the new manifest, so the file is processed again on the next run.
+     */
+    public void forget(String key, String root) {
+        this.current.remove(id(key, root));
+    }
+
+    /**
+     * @return the destinations of the entries of the previous manifest of the given kind that were not seen in this run,
+     * relative to the output directory. Another entry can still have the same destination.
+     */
+    public Set<String> getRemovedDestinations(boolean metadata) {
+        Set<String> removed = new HashSet<>();
+        this.previous.forEach((id, entry) -> {
+            if (entry.metadata() == metadata && !this.current.containsKey(id))
+                removed.add(entry.getDestination());
+        });
+        return removed;
+    }
+
+    /**
+     * @return the destinations of every entry in the new manifest, relative to the output directory
+     */
+    public Set<String> getCurrentDestinations() {
+        Set<String> destinations = new HashSet<>();
+        this.current.values().forEach(entry -> destinations.add(entry.getDestination()));
+        return destinations;
+    }
+
+    public void save() throws IOException {
+        Path tempPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            write(out);
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(tempPath, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the new manifest in the form {@link #save()} writes it, for writing it out some other way
+     */
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        write(out);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        List<String> ids = new ArrayList<>(this.current.keySet());
+        ids.sort(null);
+
+        Map<String, Integer> rootIds = new HashMap<>();
+        List<String> roots = new ArrayList<>();
+        for (Entry entry : this.current.values()) {
+            if (rootIds.putIfAbsent(entry.root(), roots.size()) == null)
+                roots.add(entry.root());
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+
+        writeVarInt(out, roots.size());
+        for (String root : roots) {
+            out.writeUTF(root);
+        }
+
+        writeVarInt(out, ids.size());
+        String previousKey = "";
+        for (String id : ids) {
+            Entry entry = this.current.get(id);
+            String key = entry.key();
+            int sharedLength = sharedPrefixLength(previousKey, key);
+            writeVarInt(out, sharedLength);
+            out.writeUTF(key.substring(sharedLength));
+            writeVarLong(out, entry.size());
+            out.writeLong(entry.modified());
+            writeVarInt(out, rootIds.get(entry.root()));
+            out.writeByte(entry.metadata() ? FLAG_METADATA : 0);
+            previousKey = key;
+        }
+    }
+
+    private boolean isInOutput(String destination) throws IOException {
+        int slash = destination.lastIndexOf('/');
+        String directory = destination.substring(0, slash);
+        Set<String> names = this.outputListings.get(directory);
+        if (names == null) {
+            names = new HashSet<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.outputFolder.resolve(directory))) {
+                for (Path path : stream) {
+                    names.add(path.getFileName().toString());
+                }
+            } catch (NoSuchFileException ignored) {
+                // Nothing of this directory is left
+            }
+            // Racing threads list the same directory, either listing will do
+            Set<String> existing = this.outputListings.putIfAbsent(directory, names);
+            if (existing != null)
+                names = existing;
+        }
+        return names.contains(destination.substring(slash + 1));
+    }
+
+    // Sorts the entries of one output root together, so the keys written in that order still share long prefixes
+    private static String id(String key, String root) {
+        return root + '\0' + key;
+    }
+
+    private static int sharedPrefixLength(String a, String b) {
+        int limit = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < limit && a.charAt(i) == b.charAt(i))
+            i++;
+        return i;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b == -1)
+                throw new IOException("Unexpected end of manifest");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed variable length number in manifest");
+    }
+
+    /**
+     * @param key  {@code <source folder name>/<relative path>}
+     * @param root the output folder relative to the output directory, such as {@code forge/releases}
+     */
+    public record Entry(String key, long size, long modified, String root, boolean metadata) {
+        boolean matches(BasicFileAttributes attributes) {
+            return this.size == attributes.size() && this.modified == attributes.lastModifiedTime().toMillis();
+        }
+
+        public String getDestination() {
+            return this.root + this.key.substring(this.key.indexOf('/'));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches folders and every directory below them with a {@link WatchService}, and hands over the directories that changed in batches.
+ * <p>
+ * A batch is handed over once no change came in for the debounce time, so a deploy writing many files in a burst ends up in one batch.
+ * A steady stream of changes still gets handed over after {@link #MAX_DELAY_FACTOR} times the debounce time.
+ * Directories created while watching are registered as they show up, and are reported along with every directory below them,
+ * since files can be written into them before they are registered. When the watch service loses events,
+ * the whole folder is reported.
+ */
+public class TreeWatcher implements Closeable {
+    public static final int DEFAULT_DEBOUNCE_MILLIS = 2000;
+    private static final int MAX_DELAY_FACTOR = 10;
+    private final WatchService watchService;
+    private final Map<WatchKey, Registration> keys = new HashMap<>();
+    private final long debounceMillis;
+
+    public TreeWatcher(List<Path> folders, long debounceMillis) throws IOException {
+        this.watchService = folders.get(0).getFileSystem().newWatchService();
+        this.debounceMillis = debounceMillis;
+
+        for (Path folder : folders) {
+            registerAll(folder, folder, null);
+        }
+    }
+
+    /**
+     * Blocks until a batch of changes is ready.
+     *
+     * @return changed directories, each being a directory with a file created, modified or deleted in it, or a newly created directory
+     */
+    public Set<Path> take() throws IOException, InterruptedException {
+        Set<Path> changed = new HashSet<>();
+        WatchKey key = this.watchService.take();
+        long deadline = System.currentTimeMillis() + this.debounceMillis * MAX_DELAY_FACTOR;
+
+        while (key != null) {
+            handle(key, changed);
+
+            long wait = Math.min(this.debounceMillis, deadline - System.currentTimeMillis());
+            key = wait > 0 ? this.watchService.poll(wait, TimeUnit.MILLISECONDS) : null;
+        }
+
+        return changed;
+    }
+
+    private void handle(WatchKey key, Set<Path> changed) throws IOException {
+        Registration registration = this.keys.get(key);
+        if (registration == null) {
+            key.cancel();
+            return;
+        }
+        Path dir = registration.dir();
+        Path folder = registration.folder();
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                System.err.println("Missed changes in " + folder + ", rescanning it");
+                registerAll(folder, folder, changed);
+                continue;
+            }
+
+            Path child = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS))
+                registerAll(child, folder, changed);
+            changed.add(dir);
+        }
+
+        if (!key.reset())
+            this.keys.remove(key);
+    }
+
+    private void registerAll(Path start, Path folder, Set<Path> changed) throws IOException {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    WatchKey key = dir.register(TreeWatcher.this.watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    TreeWatcher.this.keys.put(key, new Registration(dir, folder));
+                    if (changed != null)
+                        changed.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                    // Directories can be removed again before they are registered
+                    if (exc instanceof NoSuchFileException)
+                        return FileVisitResult.CONTINUE;
+                    throw exc;
+                }
+            });
+        } catch (NoSuchFileException ignored) {}
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.watchService.close();
+    }
+
+    /**
+     * @param folder the watched folder the directory is in
+     */
+    private record Registration(Path dir, Path folder) {}
+}
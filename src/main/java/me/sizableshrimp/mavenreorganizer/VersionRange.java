@@ -0,0 +1,80 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.data.MavenVersion;
+
+/**
+ * A Maven style version range such as {@code [1.0,2.0)}, {@code (,1.5]}, {@code [3.0,)} or the single version {@code [1.2]},
+ * ordered by {@link MavenVersion}.
+ */
+public final class VersionRange {
+    private final String spec;
+    private final MavenVersion lower;
+    private final boolean lowerInclusive;
+    private final MavenVersion upper;
+    private final boolean upperInclusive;
+
+    private VersionRange(String spec, MavenVersion lower, boolean lowerInclusive, MavenVersion upper, boolean upperInclusive) {
+        this.spec = spec;
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive;
+        this.upper = upper;
+        this.upperInclusive = upperInclusive;
+    }
+
+    public static boolean isRange(String spec) {
+        return spec.startsWith("[") || spec.startsWith("(");
+    }
+
+    public static VersionRange parse(String spec) {
+        if (spec.length() < 3 || !isRange(spec) || !(spec.endsWith("]") || spec.endsWith(")")))
+            throw new IllegalArgumentException("Invalid version range " + spec);
+
+        boolean lowerInclusive = spec.charAt(0) == '[';
+        boolean upperInclusive = spec.charAt(spec.length() - 1) == ']';
+        String inner = spec.substring(1, spec.length() - 1).trim();
+        int comma = inner.indexOf(',');
+
+        if (comma == -1) {
+            if (!lowerInclusive || !upperInclusive || inner.isEmpty())
+                throw new IllegalArgumentException("A single version range must be written as [version]: " + spec);
+            MavenVersion version = new MavenVersion(inner);
+            return new VersionRange(spec, version, true, version, true);
+        }
+
+        if (inner.indexOf(',', comma + 1) != -1)
+            throw new IllegalArgumentException("Version range has more than two bounds: " + spec);
+
+        String lower = inner.substring(0, comma).trim();
+        String upper = inner.substring(comma + 1).trim();
+        if ((lower.isEmpty() && lowerInclusive) || (upper.isEmpty() && upperInclusive))
+            throw new IllegalArgumentException("An unbounded side of a version range must be exclusive: " + spec);
+
+        VersionRange range = new VersionRange(spec, lower.isEmpty() ? null : new MavenVersion(lower), lowerInclusive,
+                upper.isEmpty() ? null : new MavenVersion(upper), upperInclusive);
+        if (range.lower != null && range.upper != null && range.lower.compareTo(range.upper) > 0)
+            throw new IllegalArgumentException("Lower bound of version range is above its upper bound: " + spec);
+        return range;
+    }
+
+    public boolean contains(String version) {
+        return contains(new MavenVersion(version));
+    }
+
+    public boolean contains(MavenVersion version) {
+        if (this.lower != null) {
+            int cmp = version.compareTo(this.lower);
+            if (cmp < 0 || (cmp == 0 && !this.lowerInclusive))
+                return false;
+        }
+        if (this.upper != null) {
+            int cmp = version.compareTo(this.upper);
+            return cmp < 0 || (cmp == 0 && this.upperInclusive);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return this.spec;
+    }
+}
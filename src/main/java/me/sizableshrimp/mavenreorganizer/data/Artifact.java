@@ -2,9 +2,16 @@ package me.sizableshrimp.mavenreorganizer.data;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 
-public record Artifact(String groupId, String artifactId, String version, boolean isSnapshot, String file) {
+/**
+ * A file of a version directory. The coordinates are shared with every other file of the same version,
+ * and with every other artifact of the run when they come from an {@link ArtifactIndex}.
+ */
+public record Artifact(VersionKey coordinates, String file) {
+    public Artifact(String groupId, String artifactId, String version, boolean isSnapshot, String file) {
+        this(new VersionKey(new ArtifactKey(groupId, artifactId), version, isSnapshot), file);
+    }
+
     public static Artifact createFromPath(Path folderPath, Path path) {
         path = folderPath.relativize(path);
 
@@ -30,6 +37,22 @@ public record Artifact(String groupId, String artifactId, String version, boolea
         return new Artifact(groupId, artifactId, version, isSnapshot, path.getFileName().toString());
     }
 
+    public String groupId() {
+        return this.coordinates.artifact().groupId();
+    }
+
+    public String artifactId() {
+        return this.coordinates.artifact().artifactId();
+    }
+
+    public String version() {
+        return this.coordinates.version();
+    }
+
+    public boolean isSnapshot() {
+        return this.coordinates.isSnapshot();
+    }
+
     public boolean isMetadata() {
         // Includes maven-metadata.xml and any hash files
         return file.startsWith("maven-metadata.xml");
@@ -40,13 +63,13 @@ public record Artifact(String groupId, String artifactId, String version, boolea
     }
 
     public Path getPath(Path releasesPath, Path snapshotsPath) {
-        return isSnapshot
+        return isSnapshot()
                 ? snapshotsPath.resolve(getRelativePath())
                 : releasesPath.resolve(getRelativePath());
     }
 
     public Path getRelativePath() {
-        return Paths.get(groupId.replace('.', '/'), artifactId, version, file);
+        return this.coordinates.getRelativePath().resolve(this.file);
     }
 
     public Path getMetadataPath(Path path) {
@@ -54,12 +77,17 @@ public record Artifact(String groupId, String artifactId, String version, boolea
     }
 
     public Path getMetadataPath(Path releasesPath, Path snapshotsPath) {
-        return isSnapshot
+        return isSnapshot()
                 ? snapshotsPath.resolve(getRelativeMetadataPath())
                 : releasesPath.resolve(getRelativeMetadataPath());
     }
 
     public Path getRelativeMetadataPath() {
-        return Paths.get(groupId.replace('.', '/'), artifactId, "maven-metadata.xml");
+        return this.coordinates.artifact().getRelativeMetadataPath();
+    }
+
+    @Override
+    public String toString() {
+        return "Artifact[groupId=" + groupId() + ", artifactId=" + artifactId() + ", version=" + version() + ", isSnapshot=" + isSnapshot() + ", file=" + this.file + ']';
     }
 }
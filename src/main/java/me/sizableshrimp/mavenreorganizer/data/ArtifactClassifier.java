@@ -0,0 +1,103 @@
+package me.sizableshrimp.mavenreorganizer.data;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Classifies files into {@link Artifact}s during a depth-first walk, following the same rules as {@link Artifact#createFromPath(Path, Path)}.
+ * <p>
+ * Every directory on the current walk path is tracked, so the {@code maven-metadata.xml} check is only done once per artifactId directory,
+ * and all artifacts created from the same version directory share the {@link VersionKey} the {@link ArtifactIndex} has for it.
+ */
+public class ArtifactClassifier {
+    private final Path folderPath;
+    private final ArtifactIndex index;
+    private final Deque<Directory> directories = new ArrayDeque<>();
+
+    public ArtifactClassifier(Path folderPath, ArtifactIndex index) {
+        this.folderPath = folderPath;
+        this.index = index;
+    }
+
+    public void enterDirectory(Path dir) {
+        Directory parent = this.directories.peek();
+        int depth = parent != null
+                ? parent.depth + 1
+                : dir.equals(this.folderPath) ? 0 : this.folderPath.relativize(dir).getNameCount();
+        this.directories.push(new Directory(parent, dir, depth));
+    }
+
+    public void exitDirectory() {
+        this.directories.pop();
+    }
+
+    public Artifact classify(Path file) {
+        Directory directory = this.directories.element();
+        VersionKey versionFolder = directory.getVersionFolder();
+        if (versionFolder == null)
+            return null;
+
+        return new Artifact(versionFolder, file.getFileName().toString());
+    }
+
+    private final class Directory {
+        private final Directory parent;
+        private final Path path;
+        private final int depth;
+        private Boolean hasMetadata;
+        private String name;
+        private String groupId;
+        private ArtifactKey artifact;
+        // The coordinates shared by every file of this version directory
+        private VersionKey versionFolder;
+        private boolean versionFolderResolved;
+
+        private Directory(Directory parent, Path path, int depth) {
+            this.parent = parent;
+            this.path = path;
+            this.depth = depth;
+        }
+
+        private boolean hasMetadata() {
+            if (this.hasMetadata == null)
+                this.hasMetadata = Files.exists(this.path.resolve("maven-metadata.xml"));
+            return this.hasMetadata;
+        }
+
+        private String getName() {
+            if (this.name == null)
+                this.name = this.path.getFileName().toString();
+            return this.name;
+        }
+
+        private String getGroupId() {
+            if (this.groupId == null) {
+                Path groupIdPath = folderPath.relativize(this.path).getParent();
+                this.groupId = groupIdPath.toString().replace('/', '.').replace('\\', '.');
+            }
+            return this.groupId;
+        }
+
+        private ArtifactKey getArtifact() {
+            if (this.artifact == null)
+                this.artifact = index.artifact(getGroupId(), getName());
+            return this.artifact;
+        }
+
+        private VersionKey getVersionFolder() {
+            if (this.versionFolderResolved)
+                return this.versionFolder;
+            this.versionFolderResolved = true;
+
+            // version directory -> artifactId directory -> groupId with at least 2 parts
+            Directory artifactIdDir = this.parent;
+            if (this.depth < 4 || artifactIdDir == null || !artifactIdDir.hasMetadata())
+                return null;
+
+            this.versionFolder = index.version(artifactIdDir.getArtifact(), getName());
+            return this.versionFolder;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package me.sizableshrimp.mavenreorganizer.data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of the coordinates seen during a run, shared by both source folders.
+ * <p>
+ * Every groupId, artifact and version is stored once and handed out as the same {@link ArtifactKey} or {@link VersionKey},
+ * so the artifacts of a run share their coordinate strings and cached relative paths instead of each holding their own.
+ * The dictionaries are keyed by the paths the keys already hold, so indexing adds no strings of its own.
+ * All methods can be called from several threads at once.
+ */
+public class ArtifactIndex {
+    private final Map<String, String> groupIds = new ConcurrentHashMap<>();
+    private final Map<String, ArtifactKey> artifacts = new ConcurrentHashMap<>();
+    private final Map<String, VersionKey> versions = new ConcurrentHashMap<>();
+
+    /**
+     * @return the same string for every equal groupId
+     */
+    public String groupId(String groupId) {
+        String existing = this.groupIds.putIfAbsent(groupId, groupId);
+        return existing == null ? groupId : existing;
+    }
+
+    public ArtifactKey artifact(String groupId, String artifactId) {
+        String path = ArtifactKey.toPath(groupId, artifactId);
+        ArtifactKey key = this.artifacts.get(path);
+        return key != null ? key : this.artifacts.computeIfAbsent(path, p -> new ArtifactKey(groupId(groupId), artifactId, p));
+    }
+
+    /**
+     * @param artifact a key handed out by this index
+     */
+    public VersionKey version(ArtifactKey artifact, String version) {
+        String path = artifact.path() + '/' + version;
+        VersionKey key = this.versions.get(path);
+        return key != null ? key : this.versions.computeIfAbsent(path, p -> new VersionKey(artifact, version, version.endsWith("-SNAPSHOT"), p));
+    }
+}
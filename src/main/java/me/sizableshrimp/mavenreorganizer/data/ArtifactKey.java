@@ -0,0 +1,76 @@
+package me.sizableshrimp.mavenreorganizer.data;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A groupId and artifactId, with the relative paths built from them cached, so they are built once per artifact instead of once per file.
+ * Keys handed out by an {@link ArtifactIndex} are unique for their coordinates.
+ */
+public final class ArtifactKey {
+    private final String groupId;
+    private final String artifactId;
+    // The groupId split into directories followed by the artifactId, such as net/minecraftforge/forge
+    private final String path;
+    // Built on first use, racing threads at worst build equal paths
+    private Path relativePath;
+    private Path relativeMetadataPath;
+
+    public ArtifactKey(String groupId, String artifactId) {
+        this(groupId, artifactId, toPath(groupId, artifactId));
+    }
+
+    ArtifactKey(String groupId, String artifactId, String path) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.path = path;
+    }
+
+    static String toPath(String groupId, String artifactId) {
+        return groupId.replace('.', '/') + '/' + artifactId;
+    }
+
+    public String groupId() {
+        return this.groupId;
+    }
+
+    public String artifactId() {
+        return this.artifactId;
+    }
+
+    /**
+     * @return the directory of the artifact relative to its maven folder, separated by {@code /}
+     */
+    public String path() {
+        return this.path;
+    }
+
+    public Path getRelativePath() {
+        Path relativePath = this.relativePath;
+        if (relativePath == null)
+            this.relativePath = relativePath = Paths.get(this.path);
+        return relativePath;
+    }
+
+    public Path getRelativeMetadataPath() {
+        Path relativeMetadataPath = this.relativeMetadataPath;
+        if (relativeMetadataPath == null)
+            this.relativeMetadataPath = relativeMetadataPath = getRelativePath().resolve("maven-metadata.xml");
+        return relativeMetadataPath;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof ArtifactKey other && this.path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.groupId + ':' + this.artifactId;
+    }
+}
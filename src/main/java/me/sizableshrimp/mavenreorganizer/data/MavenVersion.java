@@ -0,0 +1,120 @@
+package me.sizableshrimp.mavenreorganizer.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A version string split into items for ordering the way Maven does for the versions found in practice.
+ * <p>
+ * Items are separated by {@code .}, {@code -} and changes between digits and letters. Numbers compare numerically and
+ * come after any qualifier. Known qualifiers are ordered {@code alpha < beta < milestone < rc < snapshot < release < sp},
+ * with unknown qualifiers after those in alphabetical order. Missing items count as {@code 0} or release,
+ * so {@code 1}, {@code 1.0} and {@code 1.0-final} are equal.
+ */
+public final class MavenVersion implements Comparable<MavenVersion> {
+    private static final List<String> QUALIFIERS = List.of("alpha", "beta", "milestone", "rc", "snapshot", "", "sp");
+    private static final int RELEASE = QUALIFIERS.indexOf("");
+    private final String version;
+    // Either a String of digits without leading zeros or a lower case qualifier, tracked by isNumber
+    private final List<String> items = new ArrayList<>();
+    private final List<Boolean> isNumber = new ArrayList<>();
+
+    public MavenVersion(String version) {
+        this.version = version;
+
+        String lower = version.toLowerCase(Locale.ROOT);
+        int start = 0;
+        for (int i = 1; i <= lower.length(); i++) {
+            if (i == lower.length() || lower.charAt(i) == '.' || lower.charAt(i) == '-'
+                    || Character.isDigit(lower.charAt(i)) != Character.isDigit(lower.charAt(i - 1))) {
+                if (i > start && lower.charAt(start) != '.' && lower.charAt(start) != '-')
+                    addItem(lower.substring(start, i), i < lower.length() && Character.isDigit(lower.charAt(i)));
+                start = i < lower.length() && (lower.charAt(i) == '.' || lower.charAt(i) == '-') ? i + 1 : i;
+            }
+        }
+    }
+
+    private void addItem(String item, boolean followedByDigit) {
+        if (Character.isDigit(item.charAt(0))) {
+            int nonZero = 0;
+            while (nonZero < item.length() - 1 && item.charAt(nonZero) == '0')
+                nonZero++;
+            this.items.add(item.substring(nonZero));
+            this.isNumber.add(true);
+            return;
+        }
+
+        // Same aliases as Maven, where a, b and m only count as qualifiers directly before a number, such as 1.0-b2
+        String qualifier = switch (item) {
+            case "a" -> followedByDigit ? "alpha" : item;
+            case "b" -> followedByDigit ? "beta" : item;
+            case "m" -> followedByDigit ? "milestone" : item;
+            case "cr" -> "rc";
+            case "ga", "final", "release" -> "";
+            default -> item;
+        };
+        this.items.add(qualifier);
+        this.isNumber.add(false);
+    }
+
+    @Override
+    public int compareTo(MavenVersion other) {
+        int size = Math.max(this.items.size(), other.items.size());
+        for (int i = 0; i < size; i++) {
+            int cmp = compareItem(i, other);
+            if (cmp != 0)
+                return cmp;
+        }
+        return 0;
+    }
+
+    private int compareItem(int index, MavenVersion other) {
+        boolean number = index < this.items.size() ? this.isNumber.get(index) : other.isNumber.get(index);
+        boolean otherNumber = index < other.items.size() ? other.isNumber.get(index) : number;
+        String item = index < this.items.size() ? this.items.get(index) : (number ? "0" : "");
+        String otherItem = index < other.items.size() ? other.items.get(index) : (otherNumber ? "0" : "");
+
+        if (number && otherNumber) {
+            if (item.length() != otherItem.length())
+                return Integer.compare(item.length(), otherItem.length());
+            return item.compareTo(otherItem);
+        }
+        if (number != otherNumber) {
+            // A missing number is 0, which equals a release qualifier
+            String qualifier = number ? otherItem : item;
+            String numeric = number ? item : otherItem;
+            int cmp = numeric.equals("0") ? -Integer.signum(compareQualifiers(qualifier, "")) : 1;
+            return number ? cmp : -cmp;
+        }
+        return compareQualifiers(item, otherItem);
+    }
+
+    private static int compareQualifiers(String qualifier, String other) {
+        int rank = QUALIFIERS.indexOf(qualifier);
+        int otherRank = QUALIFIERS.indexOf(other);
+        if (rank != -1 && otherRank != -1)
+            return Integer.compare(rank, otherRank);
+        if (rank != -1)
+            return -1;
+        if (otherRank != -1)
+            return 1;
+        return qualifier.compareTo(other);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MavenVersion other && compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        // Equal versions can differ in trailing items, so only the first item is stable
+        return this.items.isEmpty() || (this.isNumber.get(0) ? this.items.get(0).equals("0") : this.items.get(0).isEmpty()) ? 0 : this.items.get(0).hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.version;
+    }
+}
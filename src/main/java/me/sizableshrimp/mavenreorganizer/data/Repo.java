@@ -0,0 +1,20 @@
+package me.sizableshrimp.mavenreorganizer.data;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public record Repo(Path releases, Path snapshots) {
+    public static final Repo LEGACY = create("legacy");
+
+    public static Repo create(String repo) {
+        return new Repo(Paths.get(repo + "/releases"), Paths.get(repo + "/snapshots"));
+    }
+
+    public Path getPath(Path outputFolder, Artifact artifact) {
+        return outputFolder.resolve(artifact.getPath(releases, snapshots));
+    }
+
+    public Path getMetadataPath(Path outputFolder, Artifact artifact) {
+        return outputFolder.resolve(artifact.getMetadataPath(releases, snapshots));
+    }
+}
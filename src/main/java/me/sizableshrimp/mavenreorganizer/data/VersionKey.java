@@ -0,0 +1,80 @@
+package me.sizableshrimp.mavenreorganizer.data;
+
+import java.nio.file.Path;
+
+/**
+ * An artifact and one of its versions, shared by every file of that version directory.
+ * Keys handed out by an {@link ArtifactIndex} are unique for their coordinates.
+ */
+public final class VersionKey {
+    private final ArtifactKey artifact;
+    private final String version;
+    private final boolean isSnapshot;
+    // The path of the artifact followed by the version, such as net/minecraftforge/forge/1.18.2-40.0.0
+    private final String path;
+    // Built on first use, racing threads at worst build equal values
+    private Path relativePath;
+    private MavenVersion mavenVersion;
+
+    public VersionKey(ArtifactKey artifact, String version, boolean isSnapshot) {
+        this(artifact, version, isSnapshot, artifact.path() + '/' + version);
+    }
+
+    VersionKey(ArtifactKey artifact, String version, boolean isSnapshot, String path) {
+        this.artifact = artifact;
+        this.version = version;
+        this.isSnapshot = isSnapshot;
+        this.path = path;
+    }
+
+    public ArtifactKey artifact() {
+        return this.artifact;
+    }
+
+    public String version() {
+        return this.version;
+    }
+
+    public boolean isSnapshot() {
+        return this.isSnapshot;
+    }
+
+    /**
+     * @return the version directory relative to its maven folder, separated by {@code /}
+     */
+    public String path() {
+        return this.path;
+    }
+
+    public Path getRelativePath() {
+        Path relativePath = this.relativePath;
+        if (relativePath == null)
+            this.relativePath = relativePath = this.artifact.getRelativePath().resolve(this.version);
+        return relativePath;
+    }
+
+    /**
+     * @return the version parsed for ordering, parsed once for every file of this version
+     */
+    public MavenVersion getMavenVersion() {
+        MavenVersion mavenVersion = this.mavenVersion;
+        if (mavenVersion == null)
+            this.mavenVersion = mavenVersion = new MavenVersion(this.version);
+        return mavenVersion;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof VersionKey other && this.isSnapshot == other.isSnapshot && this.path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.artifact + ":" + this.version;
+    }
+}
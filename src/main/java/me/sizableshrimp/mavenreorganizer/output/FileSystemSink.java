@@ -0,0 +1,107 @@
+package me.sizableshrimp.mavenreorganizer.output;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import me.sizableshrimp.mavenreorganizer.ArtifactCopier;
+import me.sizableshrimp.mavenreorganizer.LinkMode;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+
+/**
+ * Writes loose files to the output directory, placing artifacts with an {@link ArtifactCopier}.
+ */
+public class FileSystemSink implements OutputSink {
+    private static final int CREATED_DIRECTORIES_SIZE = 4096;
+    private final ArtifactCopier copier;
+    // Bounded, the walk is depth first so only the most recent version folders are written to again
+    private final Cache<Path, Boolean> createdDirectories = CacheBuilder.newBuilder().maximumSize(CREATED_DIRECTORIES_SIZE).build();
+    private volatile boolean linksUnsupported;
+
+    public FileSystemSink(LinkMode linkMode) {
+        this.copier = new ArtifactCopier(linkMode);
+    }
+
+    @Override
+    public void copy(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath) throws IOException {
+        createParentDirectories(outputPath);
+        this.copier.copy(folderPath, inputPath, outputPath);
+    }
+
+    @Override
+    public Map<String, HashCode> copyHashing(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath,
+            Map<String, HashFunction> hashFunctions) throws IOException {
+        createParentDirectories(outputPath);
+        return this.copier.copyHashing(folderPath, inputPath, outputPath, hashFunctions);
+    }
+
+    @Override
+    public boolean link(Path existingOutputPath, Path outputPath) throws IOException {
+        if (this.linksUnsupported)
+            return false;
+
+        createParentDirectories(outputPath);
+        Files.deleteIfExists(outputPath);
+        try {
+            Files.createLink(outputPath, existingOutputPath);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            if (!this.linksUnsupported) {
+                this.linksUnsupported = true;
+                System.err.println("Could not hard link duplicate content in the output directory, copying it instead: " + e);
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void write(Path outputPath, byte[] data) throws IOException {
+        createParentDirectories(outputPath);
+        Files.write(outputPath, data, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public void move(Path outputPath, Path targetPath) throws IOException {
+        createParentDirectories(targetPath);
+        Files.move(outputPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public boolean delete(Path outputPath) throws IOException {
+        boolean deleted = Files.deleteIfExists(outputPath);
+
+        Path parentDir = outputPath.getParent();
+        try {
+            Files.deleteIfExists(parentDir);
+            this.createdDirectories.invalidate(parentDir);
+        } catch (DirectoryNotEmptyException ignored) {}
+
+        return deleted;
+    }
+
+    @Override
+    public boolean writesLooseFiles() {
+        return true;
+    }
+
+    @Override
+    public void close() {}
+
+    private void createParentDirectories(Path path) throws IOException {
+        Path parentDir = path.getParent();
+        // Many artifacts share a version folder, so only ask the filesystem to create it once
+        if (parentDir == null || this.createdDirectories.getIfPresent(parentDir) != null)
+            return;
+
+        Files.createDirectories(parentDir);
+        this.createdDirectories.put(parentDir, Boolean.TRUE);
+    }
+}
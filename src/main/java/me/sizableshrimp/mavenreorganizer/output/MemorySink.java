@@ -0,0 +1,94 @@
+package me.sizableshrimp.mavenreorganizer.output;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps everything in memory, keyed by the {@code /} separated path relative to the output directory.
+ * Meant for tests and benchmarks on small trees.
+ */
+public class MemorySink implements OutputSink {
+    private final Path output;
+    private final NavigableMap<String, byte[]> files = new ConcurrentSkipListMap<>();
+
+    public MemorySink(Path output) {
+        this.output = output;
+    }
+
+    /**
+     * @return relative path -> content, sorted by path
+     */
+    public NavigableMap<String, byte[]> getFiles() {
+        return Collections.unmodifiableNavigableMap(this.files);
+    }
+
+    public byte[] get(String relativePath) {
+        return this.files.get(relativePath);
+    }
+
+    @Override
+    public void copy(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath) throws IOException {
+        this.files.put(getKey(outputPath), Files.readAllBytes(inputPath));
+    }
+
+    @Override
+    public Map<String, HashCode> copyHashing(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath,
+            Map<String, HashFunction> hashFunctions) throws IOException {
+        byte[] data = Files.readAllBytes(inputPath);
+        this.files.put(getKey(outputPath), data);
+
+        Map<String, HashCode> hashes = new LinkedHashMap<>();
+        hashFunctions.forEach((name, hashFunction) -> hashes.put(name, hashFunction.hashBytes(data)));
+        return hashes;
+    }
+
+    @Override
+    public boolean link(Path existingOutputPath, Path outputPath) {
+        byte[] data = this.files.get(getKey(existingOutputPath));
+        if (data == null)
+            return false;
+        this.files.put(getKey(outputPath), data);
+        return true;
+    }
+
+    @Override
+    public void write(Path outputPath, byte[] data) {
+        this.files.put(getKey(outputPath), data.clone());
+    }
+
+    @Override
+    public void move(Path outputPath, Path targetPath) throws IOException {
+        byte[] data = this.files.remove(getKey(outputPath));
+        if (data == null)
+            throw new NoSuchFileException(outputPath.toString());
+        this.files.put(getKey(targetPath), data);
+    }
+
+    @Override
+    public boolean delete(Path outputPath) {
+        return this.files.remove(getKey(outputPath)) != null;
+    }
+
+    @Override
+    public boolean writesLooseFiles() {
+        return false;
+    }
+
+    @Override
+    public void close() {}
+
+    private String getKey(Path outputPath) {
+        return this.output.relativize(outputPath).toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,74 @@
+package me.sizableshrimp.mavenreorganizer.output;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+
+/**
+ * Where the reorganized repos are written to. Paths are always the path the file would have in the output directory,
+ * so a sink decides for itself how to store them. All methods can be called from several threads at once.
+ */
+public interface OutputSink extends Closeable {
+    /**
+     * Places an input file at the given output path.
+     *
+     * @param folderPath the source folder the input belongs to
+     */
+    void copy(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath) throws IOException;
+
+    /**
+     * Like {@link #copy(Path, Path, BasicFileAttributes, Path)}, but also hashes the input with the given hash functions in the same read.
+     *
+     * @return hash function name -> hash of the input
+     */
+    Map<String, HashCode> copyHashing(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath,
+            Map<String, HashFunction> hashFunctions) throws IOException;
+
+    /**
+     * Places a second copy of a file this sink already wrote, without reading the input again where the sink can share the content.
+     *
+     * @param existingOutputPath an output path written earlier in this run, which is not written again afterwards
+     * @return false if the content could not be shared, in which case nothing was written and the caller copies the input instead
+     */
+    boolean link(Path existingOutputPath, Path outputPath) throws IOException;
+
+    /**
+     * Called instead of {@link #copy(Path, Path, BasicFileAttributes, Path)} when the output path is already up to date with the input.
+     * Nothing needs to be written, but sinks that record what a run does can note it.
+     */
+    default void skip(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath) throws IOException {}
+
+    /**
+     * Writes generated content, such as metadata, checksum files and reports, replacing any earlier content at that path.
+     */
+    void write(Path outputPath, byte[] data) throws IOException;
+
+    /**
+     * Moves an already written file to another output path.
+     */
+    void move(Path outputPath, Path targetPath) throws IOException;
+
+    /**
+     * Deletes a file written by this or an earlier run, along with its parent directory if that is left empty.
+     *
+     * @return whether the file existed
+     */
+    boolean delete(Path outputPath) throws IOException;
+
+    /**
+     * Whether files end up as loose files in the output directory, where later runs can read, compare and remove them.
+     * Resuming and incremental runs rely on this.
+     */
+    boolean writesLooseFiles();
+
+    /**
+     * Finishes everything that was written. Nothing can be written afterwards.
+     */
+    @Override
+    void close() throws IOException;
+}
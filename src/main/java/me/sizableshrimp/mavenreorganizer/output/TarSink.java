@@ -0,0 +1,285 @@
+package me.sizableshrimp.mavenreorganizer.output;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.io.CountingOutputStream;
+import me.sizableshrimp.mavenreorganizer.MultiHashingOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams the output into one tar archive per output repo, named after the first segment of the output path (such as {@code forge.tar}).
+ * Entries keep their full path relative to the output directory, so extracting every archive in one place gives the same tree
+ * as the directory output. Files directly in the output directory, such as the deleted lists, are written as loose files.
+ * <p>
+ * Archives are written strictly sequentially through large buffers and never seek, so they can also go to network storage.
+ * Every entry is written whole while holding the lock of its archive. Entries use the ustar format,
+ * with PAX extended headers for paths that do not fit in it and files of 8 GiB or more.
+ * Duplicate content within one archive is written as a hard link entry to the first copy.
+ * Since nothing can be taken back out of an archive, moving and deleting are not supported.
+ */
+public class TarSink implements OutputSink {
+    public static final String ARCHIVE_EXTENSION = ".tar";
+    private static final int BLOCK_SIZE = 512;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long MAX_USTAR_SIZE = 077777777777L;
+    private final Path output;
+    private final Map<String, Archive> archives = new ConcurrentHashMap<>();
+
+    public TarSink(Path output) {
+        this.output = output;
+    }
+
+    @Override
+    public void copy(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath) throws IOException {
+        String name = getEntryName(outputPath);
+        getArchive(name).writeEntry(name, inputAttributes.size(), inputAttributes.lastModifiedTime().toMillis(),
+                out -> copyExactly(inputPath, inputAttributes.size(), out));
+    }
+
+    @Override
+    public Map<String, HashCode> copyHashing(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath,
+            Map<String, HashFunction> hashFunctions) throws IOException {
+        String name = getEntryName(outputPath);
+        MultiHashingOutputStream[] hashingOut = new MultiHashingOutputStream[1];
+        getArchive(name).writeEntry(name, inputAttributes.size(), inputAttributes.lastModifiedTime().toMillis(), out -> {
+            hashingOut[0] = new MultiHashingOutputStream(hashFunctions, out);
+            copyExactly(inputPath, inputAttributes.size(), hashingOut[0]);
+        });
+        return hashingOut[0].hashes();
+    }
+
+    @Override
+    public boolean link(Path existingOutputPath, Path outputPath) throws IOException {
+        String existingName = getEntryName(existingOutputPath);
+        String name = getEntryName(outputPath);
+        if (existingName.indexOf('/') == -1 || name.indexOf('/') == -1)
+            return false;
+
+        // Hard links can only point to entries of the same archive
+        if (!getRepoName(name).equals(getRepoName(existingName)))
+            return false;
+
+        getArchive(name).writeLink(name, existingName, System.currentTimeMillis());
+        return true;
+    }
+
+    @Override
+    public void write(Path outputPath, byte[] data) throws IOException {
+        String name = getEntryName(outputPath);
+        if (name.indexOf('/') == -1) {
+            Files.createDirectories(this.output);
+            Files.write(outputPath, data, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            return;
+        }
+
+        getArchive(name).writeEntry(name, data.length, System.currentTimeMillis(), out -> out.write(data));
+    }
+
+    @Override
+    public void move(Path outputPath, Path targetPath) {
+        throw new UnsupportedOperationException("Entries cannot be moved once written to a tar archive");
+    }
+
+    @Override
+    public boolean delete(Path outputPath) {
+        throw new UnsupportedOperationException("Entries cannot be deleted once written to a tar archive");
+    }
+
+    @Override
+    public boolean writesLooseFiles() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Archive archive : this.archives.values()) {
+            archive.close();
+        }
+    }
+
+    private String getEntryName(Path outputPath) {
+        return this.output.relativize(outputPath).toString().replace('\\', '/');
+    }
+
+    private static String getRepoName(String name) {
+        return name.substring(0, name.indexOf('/'));
+    }
+
+    private Archive getArchive(String name) throws IOException {
+        try {
+            return this.archives.computeIfAbsent(getRepoName(name), k -> {
+                try {
+                    return new Archive(this.output.resolve(k + ARCHIVE_EXTENSION));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Copies exactly the size the header was written with, since a tar entry cannot be resized afterwards
+    private static void copyExactly(Path inputPath, long size, OutputStream out) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(size, 1))];
+        try (InputStream in = Files.newInputStream(inputPath)) {
+            long remaining = size;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1)
+                    throw new IOException("File got shorter while it was being archived: " + inputPath);
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static final class Archive {
+        private final Path path;
+        private final OutputStream out;
+
+        private Archive(Path path) throws IOException {
+            this.path = path;
+            Files.createDirectories(path.getParent());
+            this.out = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), BUFFER_SIZE);
+        }
+
+        private synchronized void writeEntry(String name, long size, long modified, EntryWriter writer) throws IOException {
+            writeHeaders(name, size, modified, (byte) '0', null);
+
+            CountingOutputStream counting = new CountingOutputStream(this.out);
+            writer.write(counting);
+            if (counting.getCount() != size)
+                throw new IOException("Wrote " + counting.getCount() + " bytes instead of " + size + " for entry " + name + " in " + this.path);
+            pad(size);
+        }
+
+        private synchronized void writeLink(String name, String linkName, long modified) throws IOException {
+            writeHeaders(name, 0, modified, (byte) '1', linkName);
+        }
+
+        private void writeHeaders(String name, long size, long modified, byte type, String linkName) throws IOException {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            byte[] linkNameBytes = linkName == null ? null : linkName.getBytes(StandardCharsets.UTF_8);
+            int split = findPrefixSplit(nameBytes);
+            boolean paxPath = nameBytes.length > 100 && split == -1;
+            boolean paxSize = size > MAX_USTAR_SIZE;
+            boolean paxLinkPath = linkNameBytes != null && linkNameBytes.length > 100;
+
+            if (paxPath || paxSize || paxLinkPath) {
+                StringBuilder records = new StringBuilder();
+                if (paxPath)
+                    appendPaxRecord(records, "path", name);
+                if (paxSize)
+                    appendPaxRecord(records, "size", Long.toString(size));
+                if (paxLinkPath)
+                    appendPaxRecord(records, "linkpath", linkName);
+                byte[] paxData = records.toString().getBytes(StandardCharsets.UTF_8);
+
+                byte[] paxName = ("PaxHeaders/" + name.substring(name.lastIndexOf('/') + 1)).getBytes(StandardCharsets.UTF_8);
+                this.out.write(createHeader(Arrays.copyOf(paxName, Math.min(paxName.length, 100)), null, null, paxData.length, modified, (byte) 'x'));
+                this.out.write(paxData);
+                pad(paxData.length);
+            }
+
+            byte[] prefix = null;
+            if (split != -1) {
+                prefix = Arrays.copyOfRange(nameBytes, 0, split);
+                nameBytes = Arrays.copyOfRange(nameBytes, split + 1, nameBytes.length);
+            } else if (paxPath) {
+                nameBytes = Arrays.copyOf(nameBytes, 100);
+            }
+            if (paxLinkPath)
+                linkNameBytes = Arrays.copyOf(linkNameBytes, 100);
+            this.out.write(createHeader(nameBytes, prefix, linkNameBytes, paxSize ? 0 : size, modified, type));
+        }
+
+        private void pad(long size) throws IOException {
+            int remainder = (int) (size % BLOCK_SIZE);
+            if (remainder != 0)
+                this.out.write(new byte[BLOCK_SIZE - remainder]);
+        }
+
+        private synchronized void close() throws IOException {
+            // Two empty blocks mark the end of the archive
+            this.out.write(new byte[BLOCK_SIZE * 2]);
+            this.out.close();
+        }
+
+        // Index of the '/' that splits a long name into a ustar prefix and name, or -1 if there is none
+        private static int findPrefixSplit(byte[] name) {
+            if (name.length <= 100)
+                return -1;
+
+            for (int i = Math.max(0, name.length - 101); i < Math.min(name.length, 156); i++) {
+                if (name[i] == '/' && i <= 155 && name.length - i - 1 <= 100 && name.length - i - 1 > 0)
+                    return i;
+            }
+            return -1;
+        }
+
+        private static void appendPaxRecord(StringBuilder records, String key, String value) {
+            // The length at the start of a record counts every byte of the record, including its own digits
+            int length = (" " + key + '=' + value + '\n').getBytes(StandardCharsets.UTF_8).length;
+            int total = length + Integer.toString(length).length();
+            if (Integer.toString(total).length() != Integer.toString(length).length())
+                total = length + Integer.toString(total).length();
+            records.append(total).append(' ').append(key).append('=').append(value).append('\n');
+        }
+
+        private static byte[] createHeader(byte[] name, byte[] prefix, byte[] linkName, long size, long modified, byte type) {
+            byte[] header = new byte[BLOCK_SIZE];
+            System.arraycopy(name, 0, header, 0, name.length);
+            writeOctal(header, 100, 8, 0644);
+            writeOctal(header, 108, 8, 0);
+            writeOctal(header, 116, 8, 0);
+            writeOctal(header, 124, 12, size);
+            writeOctal(header, 136, 12, Math.max(0, modified / 1000));
+            header[156] = type;
+            if (linkName != null)
+                System.arraycopy(linkName, 0, header, 157, linkName.length);
+            System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+            header[263] = '0';
+            header[264] = '0';
+            if (prefix != null)
+                System.arraycopy(prefix, 0, header, 345, prefix.length);
+
+            // The checksum is computed with its own field filled with spaces
+            Arrays.fill(header, 148, 156, (byte) ' ');
+            long checksum = 0;
+            for (byte b : header) {
+                checksum += b & 0xFF;
+            }
+            writeOctal(header, 148, 7, checksum);
+            header[155] = ' ';
+            return header;
+        }
+
+        // Zero padded octal digits filling the field except for a trailing NUL
+        private static void writeOctal(byte[] header, int offset, int length, long value) {
+            for (int i = offset + length - 2; i >= offset; i--) {
+                header[i] = (byte) ('0' + (value & 7));
+                value >>>= 3;
+            }
+            header[offset + length - 1] = 0;
+        }
+    }
+}
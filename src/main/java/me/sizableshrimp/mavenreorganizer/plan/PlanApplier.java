@@ -0,0 +1,174 @@
+package me.sizableshrimp.mavenreorganizer.plan;
+
+import com.google.common.hash.Hashing;
+import me.sizableshrimp.mavenreorganizer.CopyPipeline;
+import me.sizableshrimp.mavenreorganizer.LinkMode;
+import me.sizableshrimp.mavenreorganizer.MavenReorganizer;
+import me.sizableshrimp.mavenreorganizer.RunMetrics;
+import me.sizableshrimp.mavenreorganizer.output.FileSystemSink;
+import me.sizableshrimp.mavenreorganizer.output.OutputSink;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Carries out a {@link PlanFile} on the output directory, or the share of it that falls to one of several workers.
+ * <p>
+ * Entries are split between workers by a hash of their destination, so every worker reads the whole plan and applies its share
+ * without coordinating with the others. Within a worker, entries are spread over threads by destination too,
+ * so the entries for one destination are still applied in plan order.
+ * Deletes are applied in a pass of their own after copies and moves, since removing a file also removes the directories it leaves empty,
+ * which could be the directory another thread is copying into. Writes are applied in a last pass,
+ * so metadata never lists artifacts that are not in place yet.
+ */
+public class PlanApplier {
+    private static final Set<PlanFile.Action> COPY_PASS = EnumSet.of(PlanFile.Action.COPY, PlanFile.Action.SKIP, PlanFile.Action.MOVE);
+    private static final Set<PlanFile.Action> DELETE_PASS = EnumSet.of(PlanFile.Action.DELETE);
+    private static final Set<PlanFile.Action> WRITE_PASS = EnumSet.of(PlanFile.Action.WRITE);
+    private final Path planPath;
+    private final Path output;
+    private final OutputSink sink;
+    private final int threads;
+    private final int shard;
+    private final int shards;
+    private final boolean simulate;
+    private final RunMetrics metrics = new RunMetrics();
+
+    /**
+     * @param shard  index of the share of the plan to apply, from 0 to {@code shards - 1}
+     * @param shards number of workers the plan is split between
+     */
+    public PlanApplier(Path planPath, Path output, LinkMode linkMode, int threads, int shard, int shards, boolean simulate) {
+        this.planPath = planPath;
+        this.output = output;
+        this.sink = new FileSystemSink(linkMode);
+        this.threads = threads;
+        this.shard = shard;
+        this.shards = shards;
+        this.simulate = simulate;
+    }
+
+    public void run() {
+        System.out.println("Applying " + (this.shards > 1 ? "shard " + this.shard + "/" + this.shards + " of " : "") + "plan " + this.planPath + " to " + this.output);
+        apply(COPY_PASS);
+        apply(DELETE_PASS);
+        apply(WRITE_PASS);
+        System.out.println("Finished " + this.metrics.getSummary());
+
+        if (this.simulate)
+            return;
+
+        // Every worker keeps its own report, so they do not overwrite each other
+        Path reportPath = this.output.resolve(this.shards > 1
+                ? RunMetrics.REPORT_FILE_NAME.replace(".json", "-shard" + this.shard + ".json")
+                : RunMetrics.REPORT_FILE_NAME);
+        try {
+            this.metrics.writeReport(reportPath);
+        } catch (IOException e) {
+            System.err.println("Error when writing report: " + reportPath);
+            MavenReorganizer.sneakyThrow(e);
+        }
+    }
+
+    private void apply(Set<PlanFile.Action> actions) {
+        try (PlanFile.Reader reader = new PlanFile.Reader(this.planPath); CopyPipeline pipeline = new CopyPipeline(this.threads)) {
+            if (!this.output.toAbsolutePath().toString().equals(reader.getOutputFolder()) && actions == COPY_PASS)
+                System.out.println("Plan was made for output directory " + reader.getOutputFolder());
+
+            PlanFile.Entry entry;
+            while ((entry = reader.next()) != null) {
+                if (!actions.contains(entry.action()) || !isInShard(entry.destination()))
+                    continue;
+
+                PlanFile.Entry planned = entry;
+                pipeline.submit(entry.destination().hashCode(), () -> apply(planned));
+            }
+        } catch (IOException e) {
+            System.err.println("Error when reading plan: " + this.planPath);
+            MavenReorganizer.sneakyThrow(e);
+        }
+    }
+
+    private boolean isInShard(String destination) {
+        // A different hash than the lanes use, or every destination of a shard would end up in the same lane
+        return this.shards <= 1 || Math.floorMod(Hashing.murmur3_32_fixed().hashString(destination, StandardCharsets.UTF_8).asInt(), this.shards) == this.shard;
+    }
+
+    private void apply(PlanFile.Entry entry) {
+        Path outputPath = this.output.resolve(entry.destination());
+        try {
+            switch (entry.action()) {
+                case COPY -> copy(entry, outputPath);
+                case SKIP -> {
+                    this.metrics.increment(RunMetrics.Counter.FILES);
+                    this.metrics.increment(RunMetrics.Counter.SKIPPED);
+                }
+                case WRITE -> {
+                    if (this.simulate) {
+                        System.out.println("Would have wrote to path " + outputPath);
+                        return;
+                    }
+                    long writeStart = System.nanoTime();
+                    this.sink.write(outputPath, entry.data());
+                    if (entry.destination().endsWith("/maven-metadata.xml"))
+                        this.metrics.record(RunMetrics.Phase.METADATA_WRITE, writeStart, entry.data().length);
+                }
+                case DELETE -> {
+                    if (this.simulate) {
+                        System.out.println("Would have removed " + outputPath);
+                        return;
+                    }
+                    if (this.sink.delete(outputPath))
+                        this.metrics.increment(RunMetrics.Counter.REMOVED);
+                }
+                case MOVE -> {
+                    Path targetPath = this.output.resolve(entry.target());
+                    if (this.simulate) {
+                        System.out.println("Would have moved " + outputPath + " to " + targetPath);
+                        return;
+                    }
+                    // Moves only ever quarantine corrupted artifacts
+                    this.sink.move(outputPath, targetPath);
+                    this.metrics.increment(RunMetrics.Counter.QUARANTINED);
+                }
+                default -> throw new IllegalStateException("Unexpected action in plan: " + entry.action());
+            }
+        } catch (IOException e) {
+            System.err.println("Error when applying " + entry.action() + " of output path " + outputPath);
+            MavenReorganizer.sneakyThrow(e);
+        }
+    }
+
+    private void copy(PlanFile.Entry entry, Path outputPath) throws IOException {
+        this.metrics.increment(RunMetrics.Counter.FILES);
+        Path folderPath = Paths.get(entry.folder());
+        Path inputPath = folderPath.resolve(entry.source());
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(inputPath, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            System.err.println("Source was removed since the plan was made, skipping it: " + inputPath);
+            return;
+        }
+        if (attributes.size() != entry.size() || attributes.lastModifiedTime().toMillis() != entry.modified())
+            System.err.println("Source changed since the plan was made, copying its current content: " + inputPath);
+
+        if (this.simulate) {
+            System.out.println("Would have copied artifact " + inputPath + " to output path " + outputPath);
+            return;
+        }
+
+        long copyStart = System.nanoTime();
+        this.sink.copy(folderPath, inputPath, attributes, outputPath);
+        this.metrics.record(RunMetrics.Phase.COPY, copyStart, attributes.size());
+        this.metrics.increment(RunMetrics.Counter.COPIED);
+    }
+}
@@ -0,0 +1,155 @@
+package me.sizableshrimp.mavenreorganizer.plan;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The file format of an execution plan, a gzip compressed stream of actions that each target one destination path relative to the output directory.
+ * Actions for the same destination have to be carried out in the order they appear in.
+ */
+public final class PlanFile {
+    private static final int MAGIC = 0x4D52504C; // MRPL
+    private static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private PlanFile() {}
+
+    public enum Action {
+        END,
+        /** Copy {@link Entry#source()} to the destination */
+        COPY,
+        /** The destination is already up to date with {@link Entry#source()} */
+        SKIP,
+        /** Write {@link Entry#data()} to the destination */
+        WRITE,
+        /** Delete the destination, along with its parent directory if that is left empty */
+        DELETE,
+        /** Move the destination to {@link Entry#target()} */
+        MOVE
+    }
+
+    /**
+     * @param destination path relative to the output directory, separated by {@code /}
+     * @param folder      source folder of a copy or skip
+     * @param source      path of a copy or skip, relative to the source folder
+     * @param size        size of the source of a copy or skip when it was planned
+     * @param modified    modified time in milliseconds of the source of a copy or skip when it was planned
+     * @param data        content of a write
+     * @param target      path relative to the output directory that a move goes to
+     */
+    public record Entry(Action action, String destination, String folder, String source, long size, long modified, byte[] data, String target) {
+        public static Entry copy(Action action, String destination, String folder, String source, long size, long modified) {
+            return new Entry(action, destination, folder, source, size, modified, null, null);
+        }
+
+        public static Entry write(String destination, byte[] data) {
+            return new Entry(Action.WRITE, destination, null, null, data.length, 0, data, null);
+        }
+
+        public static Entry delete(String destination) {
+            return new Entry(Action.DELETE, destination, null, null, 0, 0, null, null);
+        }
+
+        public static Entry move(String destination, String target) {
+            return new Entry(Action.MOVE, destination, null, null, 0, 0, null, target);
+        }
+    }
+
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+
+        /**
+         * @param outputFolder the output directory the plan was made against, kept for reference
+         */
+        public Writer(Path path, Path outputFolder) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(path), BUFFER_SIZE), BUFFER_SIZE));
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(FORMAT_VERSION);
+            this.out.writeUTF(outputFolder.toAbsolutePath().toString());
+        }
+
+        public synchronized void write(Entry entry) throws IOException {
+            this.out.writeByte(entry.action().ordinal());
+            this.out.writeUTF(entry.destination());
+            switch (entry.action()) {
+                case COPY, SKIP -> {
+                    this.out.writeUTF(entry.folder());
+                    this.out.writeUTF(entry.source());
+                    this.out.writeLong(entry.size());
+                    this.out.writeLong(entry.modified());
+                }
+                case WRITE -> {
+                    this.out.writeInt(entry.data().length);
+                    this.out.write(entry.data());
+                }
+                case MOVE -> this.out.writeUTF(entry.target());
+                default -> {}
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            this.out.writeByte(Action.END.ordinal());
+            this.out.close();
+        }
+    }
+
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final String outputFolder;
+
+        public Reader(Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path), BUFFER_SIZE), BUFFER_SIZE));
+            try {
+                if (this.in.readInt() != MAGIC || this.in.readInt() != FORMAT_VERSION)
+                    throw new IOException("Not a plan file, or one written by an incompatible version: " + path);
+                this.outputFolder = this.in.readUTF();
+            } catch (IOException e) {
+                this.in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return the output directory the plan was made against
+         */
+        public String getOutputFolder() {
+            return this.outputFolder;
+        }
+
+        /**
+         * @return the next entry, or null at the end of the plan
+         */
+        public Entry next() throws IOException {
+            Action action = Action.values()[this.in.readUnsignedByte()];
+            if (action == Action.END)
+                return null;
+
+            String destination = this.in.readUTF();
+            return switch (action) {
+                case COPY, SKIP -> Entry.copy(action, destination, this.in.readUTF(), this.in.readUTF(), this.in.readLong(), this.in.readLong());
+                case WRITE -> {
+                    byte[] data = new byte[this.in.readInt()];
+                    this.in.readFully(data);
+                    yield Entry.write(destination, data);
+                }
+                case DELETE -> Entry.delete(destination);
+                case MOVE -> Entry.move(destination, this.in.readUTF());
+                default -> throw new IOException("Unexpected action in plan: " + action);
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package me.sizableshrimp.mavenreorganizer.plan;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.io.MoreFiles;
+import me.sizableshrimp.mavenreorganizer.MultiHashingOutputStream;
+import me.sizableshrimp.mavenreorganizer.output.OutputSink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+
+/**
+ * Records everything a run would do to the output directory in a {@link PlanFile} instead of doing it, for a {@link PlanApplier} to carry out later.
+ * <p>
+ * Sources are recorded by the absolute path of their source folder, so the plan can only be applied where the source folders are at the same paths.
+ * Duplicate content is never linked, since the file it would link to can be written by another shard.
+ */
+public class PlanSink implements OutputSink {
+    private final Path output;
+    private final PlanFile.Writer writer;
+
+    public PlanSink(Path planPath, Path output) throws IOException {
+        this.output = output;
+        this.writer = new PlanFile.Writer(planPath, output);
+    }
+
+    @Override
+    public void copy(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath) throws IOException {
+        record(PlanFile.Action.COPY, folderPath, inputPath, inputAttributes, outputPath);
+    }
+
+    @Override
+    public Map<String, HashCode> copyHashing(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath,
+            Map<String, HashFunction> hashFunctions) throws IOException {
+        // Hashed now, so corrupted artifacts are planned to be quarantined
+        MultiHashingOutputStream hashingOut = new MultiHashingOutputStream(hashFunctions, OutputStream.nullOutputStream());
+        MoreFiles.asByteSource(inputPath).copyTo(hashingOut);
+        record(PlanFile.Action.COPY, folderPath, inputPath, inputAttributes, outputPath);
+        return hashingOut.hashes();
+    }
+
+    @Override
+    public boolean link(Path existingOutputPath, Path outputPath) {
+        return false;
+    }
+
+    @Override
+    public void skip(Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath) throws IOException {
+        record(PlanFile.Action.SKIP, folderPath, inputPath, inputAttributes, outputPath);
+    }
+
+    @Override
+    public void write(Path outputPath, byte[] data) throws IOException {
+        this.writer.write(PlanFile.Entry.write(toDestination(outputPath), data));
+    }
+
+    @Override
+    public void move(Path outputPath, Path targetPath) throws IOException {
+        this.writer.write(PlanFile.Entry.move(toDestination(outputPath), toDestination(targetPath)));
+    }
+
+    @Override
+    public boolean delete(Path outputPath) throws IOException {
+        this.writer.write(PlanFile.Entry.delete(toDestination(outputPath)));
+        return Files.exists(outputPath);
+    }
+
+    @Override
+    public boolean writesLooseFiles() {
+        // Plans are applied as loose files, so they can be made against what earlier runs left in the output directory
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+
+    private void record(PlanFile.Action action, Path folderPath, Path inputPath, BasicFileAttributes inputAttributes, Path outputPath) throws IOException {
+        this.writer.write(PlanFile.Entry.copy(action, toDestination(outputPath), folderPath.toAbsolutePath().toString(),
+                folderPath.relativize(inputPath).toString().replace('\\', '/'), inputAttributes.size(), inputAttributes.lastModifiedTime().toMillis()));
+    }
+
+    private String toDestination(Path outputPath) {
+        return this.output.relativize(outputPath).toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,181 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ArtifactCopierTest {
+    private static final byte[] INPUT = "input".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OLD_INPUT = "old input".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void everyModeKeepsContentAndModifiedTime() throws IOException {
+        for (LinkMode mode : LinkMode.values()) {
+            Path input = write("input-" + mode.getName(), INPUT);
+            Files.setLastModifiedTime(input, FileTime.fromMillis(1_600_000_000_000L));
+            Path output = this.dir.resolve("output-" + mode.getName());
+
+            new ArtifactCopier(mode).copy(this.dir, input, output);
+
+            assertArrayEquals(INPUT, Files.readAllBytes(output), mode.getName());
+            assertEquals(Files.getLastModifiedTime(input), Files.getLastModifiedTime(output), mode.getName());
+        }
+    }
+
+    @Test
+    public void neverWritesThroughAnOutputLinkedToAnOldInput() throws IOException {
+        for (LinkMode mode : LinkMode.values()) {
+            Path oldInput = write("old-" + mode.getName(), OLD_INPUT);
+            Path output = this.dir.resolve("output-" + mode.getName());
+            Files.createLink(output, oldInput);
+            Path input = write("input-" + mode.getName(), INPUT);
+
+            new ArtifactCopier(mode).copy(this.dir, input, output);
+
+            assertArrayEquals(INPUT, Files.readAllBytes(output), mode.getName());
+            assertArrayEquals(OLD_INPUT, Files.readAllBytes(oldInput), mode.getName());
+        }
+    }
+
+    @Test
+    public void copyHashingNeverWritesThroughAnOutputLinkedToAnOldInput() throws IOException {
+        Map<String, HashFunction> hashFunctions = Map.of("sha256", Hashing.sha256());
+        for (LinkMode mode : LinkMode.values()) {
+            Path oldInput = write("old-" + mode.getName(), OLD_INPUT);
+            Path output = this.dir.resolve("output-" + mode.getName());
+            Files.createLink(output, oldInput);
+            Path input = write("input-" + mode.getName(), INPUT);
+
+            Map<String, HashCode> hashes = new ArtifactCopier(mode).copyHashing(this.dir, input, output, hashFunctions);
+
+            assertEquals(Hashing.sha256().hashBytes(INPUT), hashes.get("sha256"), mode.getName());
+            assertArrayEquals(INPUT, Files.readAllBytes(output), mode.getName());
+            assertArrayEquals(OLD_INPUT, Files.readAllBytes(oldInput), mode.getName());
+        }
+    }
+
+    @Test
+    public void copyHashingKeepsTheSameAttributesAsCopy() throws IOException {
+        Map<String, HashFunction> hashFunctions = Map.of("sha256", Hashing.sha256());
+        for (LinkMode mode : List.of(LinkMode.COPY, LinkMode.TRANSFER)) {
+            Path input = write("input-" + mode.getName(), INPUT);
+            Files.setLastModifiedTime(input, FileTime.fromMillis(1_600_000_000_000L));
+            boolean posix = Files.getFileAttributeView(input, PosixFileAttributeView.class) != null;
+            if (posix)
+                Files.setPosixFilePermissions(input, PosixFilePermissions.fromString("rw-r-----"));
+            Path copied = this.dir.resolve("copied-" + mode.getName());
+            Path hashed = this.dir.resolve("hashed-" + mode.getName());
+
+            ArtifactCopier copier = new ArtifactCopier(mode);
+            copier.copy(this.dir, input, copied);
+            copier.copyHashing(this.dir, input, hashed, hashFunctions);
+
+            assertEquals(Files.getLastModifiedTime(copied), Files.getLastModifiedTime(hashed), mode.getName());
+            if (posix)
+                assertEquals(Files.getPosixFilePermissions(copied), Files.getPosixFilePermissions(hashed), mode.getName());
+        }
+    }
+
+    @Test
+    public void otherErrorsFailTheFileWithoutFallingBack() throws IOException {
+        Path input = write("input", INPUT);
+        // A file where the output directory should be
+        Path notADirectory = write("not-a-directory", INPUT);
+
+        ArtifactCopier copier = new ArtifactCopier(LinkMode.HARDLINK);
+        assertThrows(FileSystemException.class, () -> copier.copy(this.dir, input, notADirectory.resolve("output")));
+
+        // The mode is still used for the rest of the folder
+        Path output = this.dir.resolve("output");
+        copier.copy(this.dir, input, output);
+        assertTrue(Files.isSameFile(input, output));
+    }
+
+    @Test
+    public void hardlinkSharesTheInput() throws IOException {
+        Path input = write("input", INPUT);
+        Path output = this.dir.resolve("output");
+
+        ArtifactCopier copier = new ArtifactCopier(LinkMode.HARDLINK);
+        copier.copy(this.dir, input, output);
+        copier.copy(this.dir, input, output);
+
+        assertTrue(Files.isSameFile(input, output));
+    }
+
+    @Test
+    public void everyModeFallsBackToCopy() {
+        for (LinkMode mode : LinkMode.values()) {
+            assertEquals(mode, LinkMode.byName(mode.getName()));
+            LinkMode fallback = mode;
+            for (int i = 0; fallback != LinkMode.COPY; i++) {
+                assertTrue(i < LinkMode.values().length, mode.getName());
+                fallback = fallback.getFallback();
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> LinkMode.byName("symlink"));
+    }
+
+    @Test
+    public void hardlinkFallsBackAcrossFileStores() throws IOException {
+        // Hardlinks cannot cross devices, which needs a second filesystem such as a tmpfs
+        Path shm = Paths.get("/dev/shm");
+        assumeTrue(Files.isDirectory(shm) && !Files.getFileStore(shm).equals(Files.getFileStore(this.dir)), "No second filesystem to link across");
+
+        Path otherFolder = Files.createTempDirectory(shm, "copier");
+        try {
+            ArtifactCopier copier = new ArtifactCopier(LinkMode.HARDLINK);
+            for (int i = 0; i < 2; i++) {
+                Path input = Files.write(otherFolder.resolve("input-" + i), INPUT);
+                Path output = this.dir.resolve("output-" + i);
+
+                copier.copy(otherFolder, input, output);
+
+                assertArrayEquals(INPUT, Files.readAllBytes(output));
+                assertFalse(Files.isSameFile(input, output));
+            }
+
+            // Inputs on the same device as the output still get linked
+            Path input = write("input", INPUT);
+            Path output = this.dir.resolve("output");
+            copier.copy(this.dir, input, output);
+            assertTrue(Files.isSameFile(input, output));
+        } finally {
+            try (Stream<Path> files = Files.list(otherFolder)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(otherFolder);
+        }
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(this.dir.resolve(name), content);
+    }
+}
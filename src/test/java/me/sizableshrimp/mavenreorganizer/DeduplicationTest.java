@@ -0,0 +1,118 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.output.MemorySink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class DeduplicationTest {
+    private static final byte[] CONTENT = "content".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OTHER_CONTENT = "CONTENT".getBytes(StandardCharsets.UTF_8);
+    private static final String METADATA = """
+            <metadata>
+              <groupId>net.minecraftforge</groupId>
+              <artifactId>forge</artifactId>
+              <versioning>
+                <versions>
+                  <version>1.0</version>
+                  <version>1.1</version>
+                </versions>
+              </versioning>
+            </metadata>
+            """;
+    private static final String FIRST = "forge/releases/net/minecraftforge/forge/1.0/forge-1.0.jar";
+    private static final String SECOND = "forge/releases/net/minecraftforge/forge/1.1/forge-1.1.jar";
+
+    @TempDir
+    Path dir;
+    private Path releases;
+    private Path proxy;
+    private Path output;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.releases = Files.createDirectories(this.dir.resolve("releases"));
+        this.proxy = Files.createDirectories(this.dir.resolve("proxy"));
+        this.output = Files.createDirectories(this.dir.resolve("output"));
+        Path artifactFolder = Files.createDirectories(this.releases.resolve("net/minecraftforge/forge"));
+        Files.writeString(artifactFolder.resolve("maven-metadata.xml"), METADATA, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void linksIdenticalContent() throws Exception {
+        jar("1.0", CONTENT, sha1(CONTENT));
+        jar("1.1", CONTENT, sha1(CONTENT));
+
+        for (boolean verify : new boolean[] {false, true}) {
+            MemorySink sink = run(verify);
+            assertArrayEquals(CONTENT, sink.get(FIRST));
+            assertSame(sink.get(FIRST), sink.get(SECOND), "verify " + verify);
+        }
+    }
+
+    @Test
+    public void neverLinksDifferentContentWithTheSameChecksumFile() throws Exception {
+        // The second checksum file was copied from the first artifact, but the content is different
+        jar("1.0", CONTENT, sha1(CONTENT));
+        jar("1.1", OTHER_CONTENT, sha1(CONTENT));
+
+        MemorySink sink = run(false);
+        assertArrayEquals(CONTENT, sink.get(FIRST));
+        assertArrayEquals(OTHER_CONTENT, sink.get(SECOND));
+        assertNotSame(sink.get(FIRST), sink.get(SECOND));
+    }
+
+    @Test
+    public void onlyLinksFilesWithChecksumFiles() throws Exception {
+        jar("1.0", CONTENT, null);
+        jar("1.1", CONTENT, sha1(CONTENT));
+
+        MemorySink sink = run(false);
+        assertArrayEquals(CONTENT, sink.get(FIRST));
+        assertArrayEquals(CONTENT, sink.get(SECOND));
+        assertNotSame(sink.get(FIRST), sink.get(SECOND));
+    }
+
+    @Test
+    public void quarantinesInsteadOfLinkingWhenVerifying() throws Exception {
+        jar("1.0", CONTENT, sha1(CONTENT));
+        jar("1.1", OTHER_CONTENT, sha1(CONTENT));
+
+        MemorySink sink = run(true);
+        assertArrayEquals(CONTENT, sink.get(FIRST));
+        assertNull(sink.get(SECOND));
+        assertArrayEquals(OTHER_CONTENT, sink.get("quarantine/releases/net/minecraftforge/forge/1.1/forge-1.1.jar"));
+    }
+
+    private MemorySink run(boolean verify) {
+        MemorySink sink = new MemorySink(this.output);
+        ReorganizerOptions options = new ReorganizerOptions(false, false, 1, 1, LinkMode.COPY, OutputFormat.DIRECTORY,
+                false, verify, false, 16, null, 0, 0, null);
+        new MavenReorganizer(this.releases, this.proxy, this.output, options, sink).run();
+        return sink;
+    }
+
+    private void jar(String version, byte[] content, String sha1) throws IOException {
+        Path versionFolder = Files.createDirectories(this.releases.resolve("net/minecraftforge/forge").resolve(version));
+        Files.write(versionFolder.resolve("forge-" + version + ".jar"), content);
+        if (sha1 != null)
+            Files.writeString(versionFolder.resolve("forge-" + version + ".jar.sha1"), sha1, StandardCharsets.UTF_8);
+    }
+
+    private static String sha1(byte[] content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(content));
+    }
+}
@@ -0,0 +1,177 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class MetadataParserTest {
+    private static final String RELEASE = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <metadata>
+              <groupId>net.minecraftforge</groupId>
+              <artifactId>forge</artifactId>
+              <versioning>
+                <latest>1.1</latest>
+                <release>1.1</release>
+                <versions>
+                  <version>1.0</version>
+                  <version>1.1</version>
+                </versions>
+                <lastUpdated>20220101000000</lastUpdated>
+              </versioning>
+            </metadata>
+            """;
+
+    @Test
+    public void parsesReleaseMetadata() throws Exception {
+        assertNotNull(MetadataParser.parse(bytes(RELEASE)));
+        assertSameAsXpp3(bytes(RELEASE));
+    }
+
+    @Test
+    public void parsesSnapshotMetadata() throws Exception {
+        byte[] data = bytes("""
+                <?xml version='1.0' encoding='UTF-8'?>
+                <!-- deployed by a build -->
+                <metadata modelVersion="1.1.0" xmlns="http://maven.apache.org/METADATA/1.1.0" xsi:schemaLocation="x">
+                  <groupId>net.minecraftforge</groupId>
+                  <artifactId>forge</artifactId>
+                  <version>2.0-SNAPSHOT</version>
+                  <versioning>
+                    <snapshot>
+                      <timestamp>20220101.000000</timestamp>
+                      <buildNumber>3</buildNumber>
+                      <localCopy>false</localCopy>
+                    </snapshot>
+                    <lastUpdated>20220101000000</lastUpdated>
+                  </versioning>
+                </metadata>
+                """);
+        assertNotNull(MetadataParser.parse(data));
+        assertSameAsXpp3(data);
+    }
+
+    @Test
+    public void parsesReferencesAndNonAsciiText() throws Exception {
+        byte[] data = bytes("""
+                <metadata>
+                  <groupId>a&amp;b&lt;&gt;&quot;&apos;</groupId>
+                  <artifactId>&#x41;&#66;&#x1F600;\u00e9</artifactId>
+                  <versioning/>
+                </metadata>
+                """);
+        Metadata metadata = MetadataParser.parse(data);
+        assertNotNull(metadata);
+        assertEquals("a&b<>\"'", metadata.getGroupId());
+        assertEquals("AB\uD83D\uDE00\u00e9", metadata.getArtifactId());
+        assertSameAsXpp3(data);
+    }
+
+    @Test
+    public void parsesByteOrderMark() throws Exception {
+        byte[] rest = bytes(RELEASE);
+        byte[] data = new byte[rest.length + 3];
+        data[0] = (byte) 0xEF;
+        data[1] = (byte) 0xBB;
+        data[2] = (byte) 0xBF;
+        System.arraycopy(rest, 0, data, 3, rest.length);
+        assertNotNull(MetadataParser.parse(data));
+        assertSameAsXpp3(data);
+    }
+
+    @Test
+    public void leavesInvalidCharacterReferencesToXpp3() throws Exception {
+        for (String reference : new String[] {"&#x110000;", "&#0;", "&#x0;", "&#xD800;", "&#xFFFE;", "&#x-41;", "&#x+41;", "&#99999999999;", "&#x;", "&#13;", "&foo;"}) {
+            byte[] data = bytes(RELEASE.replace("<groupId>net.minecraftforge", "<groupId>net" + reference + "minecraftforge"));
+            assertNull(MetadataParser.parse(data), reference);
+            assertSameAsXpp3(data);
+        }
+    }
+
+    @Test
+    public void leavesInvalidTextToXpp3() throws Exception {
+        assertFallsBack(bytes(RELEASE.replace("<groupId>net.", "<groupId>net\u0001")));
+        assertFallsBack(bytes(RELEASE.replace("<groupId>net.", "<groupId>net\r\n")));
+
+        byte[] data = bytes(RELEASE.replace("<groupId>net.", "<groupId>net_"));
+        data[RELEASE.indexOf("<groupId>net.") + "<groupId>net".length()] = (byte) 0xC3; // Starts a two byte sequence that never ends
+        assertFallsBack(data);
+    }
+
+    @Test
+    public void leavesInvalidAttributesToXpp3() throws Exception {
+        assertFallsBack(bytes(RELEASE.replace("<metadata>", "<metadata modelVersion=\"1.1.0\" modelVersion=\"1.0.0\">")));
+        assertFallsBack(bytes(RELEASE.replace("<metadata>", "<metadata modelVersion=\"1<1\">")));
+        assertFallsBack(bytes(RELEASE.replace("<metadata>", "<metadata modelVersion=\"1.1.0\nx\">")));
+    }
+
+    @Test
+    public void leavesUnknownContentToXpp3() throws Exception {
+        assertFallsBack(bytes(RELEASE.replace("<versioning>", "<plugins/><versioning>")));
+        assertFallsBack(bytes(RELEASE.replace("<latest>1.1</latest>", "<latest>1.1</latest><latest>1.0</latest>")));
+        assertFallsBack(bytes(RELEASE.replace("<groupId>net.minecraftforge</groupId>", "<groupId><![CDATA[net.minecraftforge]]></groupId>")));
+        assertFallsBack(bytes(RELEASE.replace("encoding=\"UTF-8\"", "encoding=\"ISO-8859-1\"")));
+        assertFallsBack(bytes(RELEASE.replace("</metadata>", "</metadata><metadata/>")));
+    }
+
+    private static void assertFallsBack(byte[] data) throws IOException {
+        assertNull(MetadataParser.parse(data), new String(data, StandardCharsets.UTF_8));
+        assertSameAsXpp3(data);
+    }
+
+    // MetadataIO has to give the same result as the Xpp3 reader, or fail like it does
+    private static void assertSameAsXpp3(byte[] data) throws IOException {
+        Metadata expected;
+        try {
+            expected = new MetadataXpp3Reader().read(new ByteArrayInputStream(data));
+        } catch (XmlPullParserException e) {
+            try {
+                MetadataIO.read(data);
+                fail("Expected the Xpp3 error " + e.getMessage());
+            } catch (XmlPullParserException ignored) {
+                // Both fail
+            }
+            return;
+        }
+
+        Metadata actual;
+        try {
+            actual = MetadataIO.read(data);
+        } catch (XmlPullParserException e) {
+            throw new AssertionError("Xpp3 read the metadata but MetadataIO failed", e);
+        }
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    // Every field the parser supports, since the writer refuses some of the characters the reader accepts
+    private static String describe(Metadata metadata) {
+        StringBuilder builder = new StringBuilder()
+                .append(metadata.getModelEncoding()).append('|').append(metadata.getModelVersion()).append('|')
+                .append(metadata.getGroupId()).append('|').append(metadata.getArtifactId()).append('|').append(metadata.getVersion());
+        Versioning versioning = metadata.getVersioning();
+        if (versioning != null) {
+            builder.append('|').append(versioning.getLatest()).append('|').append(versioning.getRelease())
+                    .append('|').append(versioning.getVersions()).append('|').append(versioning.getLastUpdated());
+            Snapshot snapshot = versioning.getSnapshot();
+            if (snapshot != null)
+                builder.append('|').append(snapshot.getTimestamp()).append('|').append(snapshot.getBuildNumber()).append('|').append(snapshot.isLocalCopy());
+        }
+        return builder.toString();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,178 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Plugin;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetadataWriterTest {
+    @Test
+    public void writesReleaseMetadata() throws IOException {
+        Metadata metadata = artifact("net.minecraftforge", "forge");
+        Versioning versioning = new Versioning();
+        versioning.setLatest("1.1");
+        versioning.setRelease("1.1");
+        versioning.addVersion("1.0");
+        versioning.addVersion("1.1");
+        versioning.setLastUpdated("20220101000000");
+        metadata.setVersioning(versioning);
+
+        assertTrue(MetadataWriter.canWrite(metadata));
+        assertSameAsXpp3(metadata);
+    }
+
+    @Test
+    public void writesSnapshotMetadata() throws IOException {
+        Metadata metadata = artifact("net.minecraftforge", "forge");
+        metadata.setModelVersion("1.1.0");
+        metadata.setVersion("2.0-SNAPSHOT");
+        Versioning versioning = new Versioning();
+        Snapshot snapshot = new Snapshot();
+        snapshot.setTimestamp("20220101.000000");
+        snapshot.setBuildNumber(3);
+        versioning.setSnapshot(snapshot);
+        versioning.setLastUpdated("20220101000000");
+        metadata.setVersioning(versioning);
+
+        assertTrue(MetadataWriter.canWrite(metadata));
+        assertSameAsXpp3(metadata);
+
+        snapshot.setTimestamp(null);
+        snapshot.setBuildNumber(0);
+        snapshot.setLocalCopy(true);
+        assertTrue(MetadataWriter.canWrite(metadata));
+        assertSameAsXpp3(metadata);
+    }
+
+    @Test
+    public void writesEveryCombinationOfOptionalFields() throws IOException {
+        int written = 0;
+        for (int mask = 0; mask < 1 << 10; mask++) {
+            Metadata metadata = new Metadata();
+            if ((mask & 1) != 0)
+                metadata.setModelVersion("1.1.0");
+            if ((mask & 2) != 0)
+                metadata.setGroupId("net.minecraftforge");
+            if ((mask & 4) != 0)
+                metadata.setArtifactId("forge");
+            if ((mask & 8) != 0)
+                metadata.setVersion("2.0-SNAPSHOT");
+            if ((mask & 16) != 0) {
+                Versioning versioning = new Versioning();
+                if ((mask & 32) != 0)
+                    versioning.setLatest("1.1");
+                if ((mask & 64) != 0)
+                    versioning.setRelease("1.0");
+                if ((mask & 128) != 0)
+                    versioning.setVersions(new ArrayList<>(List.of("1.0", "1.1")));
+                if ((mask & 256) != 0)
+                    versioning.setLastUpdated("20220101000000");
+                if ((mask & 512) != 0) {
+                    Snapshot snapshot = new Snapshot();
+                    snapshot.setBuildNumber(1);
+                    versioning.setSnapshot(snapshot);
+                }
+                metadata.setVersioning(versioning);
+            }
+
+            if (MetadataWriter.canWrite(metadata))
+                written++;
+            assertSameAsXpp3(metadata);
+        }
+        assertTrue(written > 0);
+    }
+
+    @Test
+    public void leavesPluginsToXpp3() throws IOException {
+        Metadata metadata = new Metadata();
+        metadata.setGroupId("net.minecraftforge");
+        Plugin plugin = new Plugin();
+        plugin.setName("Forge Gradle");
+        plugin.setPrefix("forge");
+        plugin.setArtifactId("forge-gradle-plugin");
+        metadata.addPlugin(plugin);
+
+        assertFalse(MetadataWriter.canWrite(metadata));
+        assertSameAsXpp3(metadata);
+    }
+
+    @Test
+    public void leavesSnapshotVersionsToXpp3() throws IOException {
+        Metadata metadata = artifact("net.minecraftforge", "forge");
+        metadata.setVersion("2.0-SNAPSHOT");
+        Versioning versioning = new Versioning();
+        Snapshot snapshot = new Snapshot();
+        snapshot.setTimestamp("20220101.000000");
+        snapshot.setBuildNumber(3);
+        versioning.setSnapshot(snapshot);
+        SnapshotVersion jar = new SnapshotVersion();
+        jar.setExtension("jar");
+        jar.setVersion("2.0-20220101.000000-3");
+        jar.setUpdated("20220101000000");
+        versioning.addSnapshotVersion(jar);
+        SnapshotVersion sources = new SnapshotVersion();
+        sources.setClassifier("sources");
+        sources.setExtension("jar");
+        sources.setVersion("2.0-20220101.000000-3");
+        sources.setUpdated("20220101000000");
+        versioning.addSnapshotVersion(sources);
+        metadata.setVersioning(versioning);
+
+        assertFalse(MetadataWriter.canWrite(metadata));
+        assertSameAsXpp3(metadata);
+    }
+
+    @Test
+    public void leavesEscapedCharactersToXpp3() throws IOException {
+        for (String value : new String[] {"a&b", "a<b", "a>b", "a\"b", "a'b", "a\tb", "a\u00e9b", "a\uD83D\uDE00b", ""}) {
+            Metadata groupId = artifact(value, "forge");
+            assertFalse(MetadataWriter.canWrite(groupId), value);
+            assertSameAsXpp3(groupId);
+
+            Metadata version = artifact("net.minecraftforge", "forge");
+            Versioning versioning = new Versioning();
+            versioning.addVersion("1.0");
+            versioning.addVersion(value);
+            version.setVersioning(versioning);
+            assertFalse(MetadataWriter.canWrite(version), value);
+            assertSameAsXpp3(version);
+
+            Metadata modelVersion = artifact("net.minecraftforge", "forge");
+            modelVersion.setModelVersion(value);
+            assertFalse(MetadataWriter.canWrite(modelVersion), value);
+            assertSameAsXpp3(modelVersion);
+        }
+    }
+
+    private static Metadata artifact(String groupId, String artifactId) {
+        Metadata metadata = new Metadata();
+        metadata.setGroupId(groupId);
+        metadata.setArtifactId(artifactId);
+        return metadata;
+    }
+
+    // Whichever writer MetadataIO picks, the file has to be byte for byte what the Xpp3 writer would have written
+    private static void assertSameAsXpp3(Metadata metadata) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new MetadataXpp3Writer().write(expected, metadata);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        MetadataIO.write(actual, metadata);
+
+        assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+}
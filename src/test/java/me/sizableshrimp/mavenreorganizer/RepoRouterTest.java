@@ -0,0 +1,92 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.data.Artifact;
+import me.sizableshrimp.mavenreorganizer.data.Repo;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RepoRouterTest {
+    private static final Repo FORGE = Repo.create("forge");
+    private static final Repo INSTALLER = Repo.create("installer");
+    private static final Repo RANGED = Repo.create("ranged");
+    private static final Repo WILDCARD = Repo.create("wildcard");
+
+    @Test
+    public void routesToDeepestBasePath() {
+        RepoRouter router = new RepoRouter();
+        router.add("net/minecraftforge", FORGE);
+        router.add("net/minecraftforge/installer/1.0", INSTALLER);
+
+        assertEquals(FORGE, router.route(artifact("net.minecraftforge", "forge", "1.0")));
+        assertEquals(FORGE, router.route(artifact("net.minecraftforge.sub", "forge", "1.0")));
+        assertEquals(FORGE, router.route(artifact("net.minecraftforge", "installer", "2.0")));
+        assertEquals(INSTALLER, router.route(artifact("net.minecraftforge", "installer", "1.0")));
+    }
+
+    @Test
+    public void doesNotMatchPartialSegments() {
+        RepoRouter router = new RepoRouter();
+        router.add("net/minecraftforge", FORGE);
+
+        assertNull(router.route(artifact("net.minecraft", "forge", "1.0")));
+        assertNull(router.route(artifact("net.minecraftforgex", "forge", "1.0")));
+    }
+
+    @Test
+    public void exactSegmentsWinOverRangesAndRangesOverWildcards() {
+        RepoRouter router = new RepoRouter();
+        router.add(List.of("com", "x", "lib", "1.5"), null, INSTALLER);
+        router.add(List.of("com", "x", "lib"), VersionRange.parse("[1.0,2.0)"), RANGED);
+        router.add(List.of("com", "x", "*", "1.2"), null, WILDCARD);
+        router.add(List.of("com", "x", "lib"), null, FORGE);
+
+        assertEquals(INSTALLER, router.route(artifact("com.x", "lib", "1.5")));
+        assertEquals(RANGED, router.route(artifact("com.x", "lib", "1.2")));
+        assertEquals(FORGE, router.route(artifact("com.x", "lib", "2.0")));
+        assertEquals(WILDCARD, router.route(artifact("com.x", "other", "1.2")));
+        assertNull(router.route(artifact("com.x", "other", "1.3")));
+    }
+
+    @Test
+    public void rejectsDuplicateBasePaths() {
+        RepoRouter router = new RepoRouter();
+        router.add("net/minecraftforge", FORGE);
+        assertThrows(IllegalStateException.class, () -> router.add("net/minecraftforge", INSTALLER));
+    }
+
+    @Test
+    public void roundTripsThroughCompiledForm() throws IOException {
+        RepoRouter router = new RepoRouter();
+        router.add("net/minecraftforge", FORGE);
+        router.add(List.of("com", "x", "lib"), VersionRange.parse("[1.0,2.0)"), RANGED);
+        router.add(List.of("com", "*"), null, WILDCARD);
+
+        // Ids are taken from a table shared with another router, so they differ from the ones the router uses itself
+        Repo[] repos = {INSTALLER, WILDCARD, RANGED, FORGE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        router.write(new DataOutputStream(bytes), Map.of(INSTALLER, 0, WILDCARD, 1, RANGED, 2, FORGE, 3));
+        RepoRouter read = RepoRouter.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), repos);
+
+        assertEquals(Set.of(FORGE, RANGED, WILDCARD), read.getRepos());
+        for (Artifact artifact : List.of(artifact("net.minecraftforge", "forge", "1.0"), artifact("com.x", "lib", "1.5"),
+                artifact("com.x", "lib", "3.0"), artifact("com.y", "lib", "1.0"), artifact("org.other", "lib", "1.0"))) {
+            assertEquals(router.route(artifact), read.route(artifact), artifact.toString());
+        }
+    }
+
+    private static Artifact artifact(String groupId, String artifactId, String version) {
+        return new Artifact(groupId, artifactId, version, false, artifactId + '-' + version + ".jar");
+    }
+}
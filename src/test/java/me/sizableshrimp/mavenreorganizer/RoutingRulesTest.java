@@ -0,0 +1,69 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.data.Artifact;
+import me.sizableshrimp.mavenreorganizer.data.Repo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class RoutingRulesTest {
+    private static final Artifact FORGE = new Artifact("net.minecraftforge", "forge", "1.0", false, "forge-1.0.jar");
+    private static final Artifact SPONGE = new Artifact("org.spongepowered", "spongeapi", "8.0", false, "spongeapi-8.0.jar");
+
+    @TempDir
+    Path dir;
+    private Path rules;
+    private Path cache;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.rules = Files.writeString(this.dir.resolve("rules.txt"), """
+                releases forge net.minecraftforge
+                proxy sponge_proxy org.spongepowered
+                """, StandardCharsets.UTF_8);
+        this.cache = this.dir.resolve(RoutingRules.CACHE_FILE_NAME);
+    }
+
+    @Test
+    public void readsRulesBackFromTheCache() throws IOException {
+        assertRoutes(RoutingRules.load(this.rules, this.cache));
+        byte[] written = Files.readAllBytes(this.cache);
+
+        assertRoutes(RoutingRules.load(this.rules, this.cache));
+        assertArrayEquals(written, Files.readAllBytes(this.cache));
+    }
+
+    @Test
+    public void parsesAgainWhenTheCacheIsDamaged() throws IOException {
+        RoutingRules.load(this.rules, this.cache);
+        byte[] written = Files.readAllBytes(this.cache);
+
+        // Cut short, like a write that ran out of disk space
+        Files.write(this.cache, Arrays.copyOf(written, written.length / 2));
+        assertRoutes(RoutingRules.load(this.rules, this.cache));
+        assertArrayEquals(written, Files.readAllBytes(this.cache));
+
+        // Same header, but the rest overwritten
+        byte[] damaged = written.clone();
+        Arrays.fill(damaged, 8, damaged.length, (byte) 0xFF);
+        Files.write(this.cache, damaged);
+        assertRoutes(RoutingRules.load(this.rules, this.cache));
+        assertArrayEquals(written, Files.readAllBytes(this.cache));
+    }
+
+    private static void assertRoutes(RoutingRules routingRules) {
+        assertEquals(Repo.create("forge"), routingRules.releases().route(FORGE));
+        assertNull(routingRules.releases().route(SPONGE));
+        assertEquals(Repo.create("sponge_proxy"), routingRules.proxy().route(SPONGE));
+    }
+}
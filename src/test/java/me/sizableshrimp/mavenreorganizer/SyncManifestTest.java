@@ -0,0 +1,183 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SyncManifestTest {
+    private static final String JAR = "releases/net/minecraftforge/forge/1.0/forge-1.0.jar";
+    private static final String POM = "releases/net/minecraftforge/forge/1.0/forge-1.0.pom";
+    private static final String METADATA = "releases/net/minecraftforge/forge/maven-metadata.xml";
+
+    @TempDir
+    Path dir;
+    private Path output;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.output = Files.createDirectories(this.dir.resolve("output"));
+    }
+
+    @Test
+    public void keepsUnchangedFilesAcrossRuns() throws IOException {
+        BasicFileAttributes jar = source("forge-1.0.jar", "jar");
+        BasicFileAttributes pom = source("forge-1.0.pom", "pom");
+        BasicFileAttributes metadata = source("maven-metadata.xml", "<metadata/>");
+
+        SyncManifest first = SyncManifest.load(this.output);
+        assertFalse(first.keepIfUnchanged(JAR, jar, "forge/releases"));
+        first.record(JAR, jar, "forge/releases", false);
+        first.record(POM, pom, "forge/releases", false);
+        first.record(METADATA, metadata, "forge/releases", true);
+        first.save();
+        output("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.jar");
+        output("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.pom");
+        output("forge/releases/net/minecraftforge/forge/maven-metadata.xml");
+
+        SyncManifest second = SyncManifest.load(this.output);
+        assertTrue(second.keepIfUnchanged(JAR, jar, "forge/releases"));
+        assertTrue(second.keepIfUnchanged(POM, pom, "forge/releases"));
+        assertTrue(second.keepIfUnchanged(METADATA, metadata, "forge/releases"));
+        assertEquals(Set.of(), second.getRemovedDestinations(false));
+        assertEquals(Set.of(), second.getRemovedDestinations(true));
+        second.save();
+
+        // Carried over entries are written again, so the manifest holds up over more than one run
+        SyncManifest third = SyncManifest.load(this.output);
+        assertTrue(third.keepIfUnchanged(JAR, jar, "forge/releases"));
+    }
+
+    @Test
+    public void detectsChangedFiles() throws IOException {
+        BasicFileAttributes jar = source("forge-1.0.jar", "jar");
+        SyncManifest first = SyncManifest.load(this.output);
+        first.record(JAR, jar, "forge/releases", false);
+        first.save();
+        output("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.jar");
+
+        Path jarPath = this.dir.resolve("forge-1.0.jar");
+        Files.setLastModifiedTime(jarPath, FileTime.fromMillis(jar.lastModifiedTime().toMillis() + 1000));
+        assertFalse(SyncManifest.load(this.output).keepIfUnchanged(JAR, Files.readAttributes(jarPath, BasicFileAttributes.class), "forge/releases"));
+
+        BasicFileAttributes resized = source("forge-1.0.jar", "longer jar");
+        assertFalse(SyncManifest.load(this.output).keepIfUnchanged(JAR, resized, "forge/releases"));
+    }
+
+    @Test
+    public void doesNotTrustEntriesWithoutOutput() throws IOException {
+        BasicFileAttributes jar = source("forge-1.0.jar", "jar");
+        SyncManifest first = SyncManifest.load(this.output);
+        first.record(JAR, jar, "forge/releases", false);
+        first.save();
+
+        assertFalse(SyncManifest.load(this.output).keepIfUnchanged(JAR, jar, "forge/releases"));
+    }
+
+    @Test
+    public void doesNotTrustEntriesWhoseOutputWasRemovedFromADirectory() throws IOException {
+        BasicFileAttributes jar = source("forge-1.0.jar", "jar");
+        BasicFileAttributes pom = source("forge-1.0.pom", "pom");
+        SyncManifest first = SyncManifest.load(this.output);
+        first.record(JAR, jar, "forge/releases", false);
+        first.record(POM, pom, "forge/releases", false);
+        first.save();
+        output("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.pom");
+
+        SyncManifest second = SyncManifest.load(this.output);
+        assertTrue(second.keepIfUnchanged(POM, pom, "forge/releases"));
+        assertFalse(second.keepIfUnchanged(JAR, jar, "forge/releases"));
+
+        // Listings are taken again after they are cleared, so outputs written since then are seen
+        output("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.jar");
+        assertFalse(second.keepIfUnchanged(JAR, jar, "forge/releases"));
+        second.clearOutputListings();
+        assertTrue(second.keepIfUnchanged(JAR, jar, "forge/releases"));
+    }
+
+    @Test
+    public void reportsRemovedAndRoutedAwayDestinations() throws IOException {
+        BasicFileAttributes jar = source("forge-1.0.jar", "jar");
+        BasicFileAttributes pom = source("forge-1.0.pom", "pom");
+        SyncManifest first = SyncManifest.load(this.output);
+        first.record(JAR, jar, "forge/releases", false);
+        first.record(POM, pom, "forge/releases", false);
+        first.save();
+        output("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.jar");
+        output("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.pom");
+
+        // The pom is gone, and the jar is now routed to another output root
+        SyncManifest second = SyncManifest.load(this.output);
+        assertFalse(second.keepIfUnchanged(JAR, jar, "other/releases"));
+        second.record(JAR, jar, "other/releases", false);
+
+        assertEquals(Set.of("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.jar", "forge/releases/net/minecraftforge/forge/1.0/forge-1.0.pom"),
+                second.getRemovedDestinations(false));
+        assertEquals(Set.of("other/releases/net/minecraftforge/forge/1.0/forge-1.0.jar"), second.getCurrentDestinations());
+    }
+
+    @Test
+    public void keepsOneEntryPerOutputRoot() throws IOException {
+        // The metadata of an artifact goes to both the releases and snapshots folder of its repo
+        BasicFileAttributes metadata = source("maven-metadata.xml", "<metadata/>");
+        SyncManifest first = SyncManifest.load(this.output);
+        first.record(METADATA, metadata, "forge/releases", true);
+        first.record(METADATA, metadata, "forge/snapshots", true);
+        first.save();
+        output("forge/releases/net/minecraftforge/forge/maven-metadata.xml");
+        output("forge/snapshots/net/minecraftforge/forge/maven-metadata.xml");
+
+        SyncManifest second = SyncManifest.load(this.output);
+        assertTrue(second.keepIfUnchanged(METADATA, metadata, "forge/releases"));
+        assertTrue(second.keepIfUnchanged(METADATA, metadata, "forge/snapshots"));
+        assertEquals(Set.of(), second.getRemovedDestinations(true));
+        assertEquals(Set.of("forge/releases/net/minecraftforge/forge/maven-metadata.xml", "forge/snapshots/net/minecraftforge/forge/maven-metadata.xml"),
+                second.getCurrentDestinations());
+    }
+
+    @Test
+    public void forgottenEntriesAreProcessedAgain() throws IOException {
+        BasicFileAttributes jar = source("forge-1.0.jar", "jar");
+        SyncManifest first = SyncManifest.load(this.output);
+        first.record(JAR, jar, "forge/releases", false);
+        first.save();
+        output("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.jar");
+
+        SyncManifest second = SyncManifest.load(this.output);
+        assertTrue(second.keepIfUnchanged(JAR, jar, "forge/releases"));
+        second.forget(JAR, "forge/releases");
+        second.save();
+
+        assertFalse(SyncManifest.load(this.output).keepIfUnchanged(JAR, jar, "forge/releases"));
+    }
+
+    @Test
+    public void ignoresUnknownFormats() throws IOException {
+        Files.write(this.output.resolve(SyncManifest.FILE_NAME), new byte[] {0, 0, 0, 1, 0, 0, 0, 1});
+        BasicFileAttributes jar = source("forge-1.0.jar", "jar");
+
+        assertFalse(SyncManifest.load(this.output).keepIfUnchanged(JAR, jar, "forge/releases"));
+    }
+
+    private BasicFileAttributes source(String name, String content) throws IOException {
+        Path path = Files.writeString(this.dir.resolve(name), content, StandardCharsets.UTF_8);
+        return Files.readAttributes(path, BasicFileAttributes.class);
+    }
+
+    private void output(String destination) throws IOException {
+        Path path = this.output.resolve(destination);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, destination, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VerifyTest {
+    private static final byte[] CONTENT = "content".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CORRUPTED = "contend".getBytes(StandardCharsets.UTF_8);
+    private static final String METADATA = """
+            <metadata>
+              <groupId>net.minecraftforge</groupId>
+              <artifactId>forge</artifactId>
+              <versioning>
+                <latest>1.1</latest>
+                <release>1.1</release>
+                <versions>
+                  <version>1.0</version>
+                  <version>1.1</version>
+                </versions>
+              </versioning>
+            </metadata>
+            """;
+    private static final String REPO = "forge/releases/net/minecraftforge/forge/";
+    private static final String QUARANTINE = "quarantine/releases/net/minecraftforge/forge/1.1/";
+
+    @TempDir
+    Path dir;
+    private Path releases;
+    private Path proxy;
+    private Path output;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        this.releases = Files.createDirectories(this.dir.resolve("releases"));
+        this.proxy = Files.createDirectories(this.dir.resolve("proxy"));
+        this.output = Files.createDirectories(this.dir.resolve("output"));
+        Path artifactFolder = Files.createDirectories(this.releases.resolve("net/minecraftforge/forge"));
+        Files.writeString(artifactFolder.resolve("maven-metadata.xml"), METADATA, StandardCharsets.UTF_8);
+
+        jar("1.0", CONTENT);
+        // The checksum files were written for the content before it was damaged
+        jar("1.1", CONTENT);
+        Files.write(artifactFolder.resolve("1.1/forge-1.1.jar"), CORRUPTED);
+    }
+
+    @Test
+    public void quarantinesCorruptedArtifactsWithTheirChecksumFiles() throws Exception {
+        run(false);
+
+        assertQuarantined();
+        assertArrayEquals(CONTENT, Files.readAllBytes(this.output.resolve(REPO + "1.0/forge-1.0.jar")));
+        assertTrue(Files.exists(this.output.resolve(REPO + "1.0/forge-1.0.jar.sha1")));
+        assertTrue(Files.readString(this.output.resolve("releases-corrupted.txt"), StandardCharsets.UTF_8)
+                .startsWith("net/minecraftforge/forge/1.1/forge-1.1.jar sha1 expected " + hash("SHA-1", CONTENT)));
+    }
+
+    @Test
+    public void verifiesQuarantinedArtifactsAgainOnTheNextRun() throws Exception {
+        run(true);
+        assertQuarantined();
+
+        // Left out of the manifest, so the next run checks it again instead of skipping it
+        deleteQuarantine();
+        run(true);
+        assertQuarantined();
+
+        // Once the artifact is repaired, it is copied and its version is listed again
+        Files.write(this.releases.resolve("net/minecraftforge/forge/1.1/forge-1.1.jar"), CONTENT);
+        run(true);
+        assertArrayEquals(CONTENT, Files.readAllBytes(this.output.resolve(REPO + "1.1/forge-1.1.jar")));
+        assertTrue(Files.exists(this.output.resolve(REPO + "1.1/forge-1.1.jar.sha1")));
+        Metadata metadata = MetadataIO.read(this.output.resolve(REPO + "maven-metadata.xml"));
+        assertEquals(List.of("1.0", "1.1"), metadata.getVersioning().getVersions());
+        assertEquals("1.1", metadata.getVersioning().getRelease());
+    }
+
+    private void assertQuarantined() throws Exception {
+        assertArrayEquals(CORRUPTED, Files.readAllBytes(this.output.resolve(QUARANTINE + "forge-1.1.jar")));
+        assertEquals(hash("SHA-1", CONTENT), Files.readString(this.output.resolve(QUARANTINE + "forge-1.1.jar.sha1"), StandardCharsets.UTF_8));
+        assertEquals(hash("MD5", CONTENT), Files.readString(this.output.resolve(QUARANTINE + "forge-1.1.jar.md5"), StandardCharsets.UTF_8));
+        for (String file : new String[] {"forge-1.1.jar", "forge-1.1.jar.sha1", "forge-1.1.jar.md5"}) {
+            assertFalse(Files.exists(this.output.resolve(REPO + "1.1/" + file)), file);
+        }
+
+        // Nothing of the version made it to the output, so it is pruned from the metadata like a version that was never there
+        Metadata metadata = MetadataIO.read(this.output.resolve(REPO + "maven-metadata.xml"));
+        assertEquals(List.of("1.0"), metadata.getVersioning().getVersions());
+        assertEquals("1.0", metadata.getVersioning().getRelease());
+        assertEquals("1.0", metadata.getVersioning().getLatest());
+    }
+
+    private void run(boolean incremental) {
+        ReorganizerOptions options = new ReorganizerOptions(false, false, 1, 1, LinkMode.COPY, OutputFormat.DIRECTORY,
+                incremental, true, false, 0, null, 0, 0, null);
+        new MavenReorganizer(this.releases, this.proxy, this.output, options).run();
+    }
+
+    private void deleteQuarantine() throws IOException {
+        for (String file : new String[] {"forge-1.1.jar", "forge-1.1.jar.sha1", "forge-1.1.jar.md5"}) {
+            Files.delete(this.output.resolve(QUARANTINE + file));
+        }
+    }
+
+    private void jar(String version, byte[] content) throws Exception {
+        Path versionFolder = Files.createDirectories(this.releases.resolve("net/minecraftforge/forge").resolve(version));
+        Path jar = Files.write(versionFolder.resolve("forge-" + version + ".jar"), content);
+        Files.writeString(jar.resolveSibling(jar.getFileName() + ".sha1"), hash("SHA-1", content), StandardCharsets.UTF_8);
+        Files.writeString(jar.resolveSibling(jar.getFileName() + ".md5"), hash("MD5", content), StandardCharsets.UTF_8);
+    }
+
+    private static String hash(String algorithm, byte[] content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance(algorithm).digest(content));
+    }
+}
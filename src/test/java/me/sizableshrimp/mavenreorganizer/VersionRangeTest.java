@@ -0,0 +1,60 @@
+package me.sizableshrimp.mavenreorganizer;
+
+import me.sizableshrimp.mavenreorganizer.data.MavenVersion;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VersionRangeTest {
+    @Test
+    public void ordersVersionsLikeMaven() {
+        assertOrder("1.0-alpha", "1.0-beta");
+        assertOrder("1.0-beta", "1.0-rc1");
+        assertOrder("1.0-rc1", "1.0-SNAPSHOT");
+        assertOrder("1.0-SNAPSHOT", "1.0");
+        assertOrder("1.0", "1.0-sp");
+        assertOrder("1.0-sp", "1.0.1");
+        assertOrder("1.9", "1.10");
+        assertOrder("1.99.99", "2.0");
+        assertOrder("1.0-sp", "1.0-foo");
+        assertEquals(0, new MavenVersion("1").compareTo(new MavenVersion("1.0")));
+        assertEquals(0, new MavenVersion("1.0-final").compareTo(new MavenVersion("1")));
+        assertEquals(0, new MavenVersion("1.0-b2").compareTo(new MavenVersion("1.0-beta-2")));
+    }
+
+    @Test
+    public void containsRespectsBounds() {
+        VersionRange range = VersionRange.parse("[1.0,2.0)");
+        assertTrue(range.contains("1.0"));
+        assertTrue(range.contains("1.5.3"));
+        assertTrue(range.contains("2.0-SNAPSHOT"));
+        assertFalse(range.contains("2.0"));
+        assertFalse(range.contains("0.9"));
+
+        assertTrue(VersionRange.parse("(,1.5]").contains("1.5"));
+        assertFalse(VersionRange.parse("(1.5,)").contains("1.5"));
+        assertTrue(VersionRange.parse("[1.2]").contains("1.2.0"));
+        assertFalse(VersionRange.parse("[1.2]").contains("1.2.1"));
+    }
+
+    @Test
+    public void keepsSpecAsString() {
+        assertEquals("[1.0,2.0)", VersionRange.parse("[1.0,2.0)").toString());
+        assertTrue(VersionRange.isRange("(,1]"));
+        assertFalse(VersionRange.isRange("1.0"));
+    }
+
+    @Test
+    public void rejectsInvalidRanges() {
+        assertThrows(IllegalArgumentException.class, () -> VersionRange.parse("[2,1]"));
+        assertThrows(IllegalArgumentException.class, () -> VersionRange.parse("[1,2"));
+    }
+
+    private static void assertOrder(String lower, String higher) {
+        assertTrue(new MavenVersion(lower).compareTo(new MavenVersion(higher)) < 0, lower + " < " + higher);
+        assertTrue(new MavenVersion(higher).compareTo(new MavenVersion(lower)) > 0, higher + " > " + lower);
+    }
+}
@@ -0,0 +1,82 @@
+package me.sizableshrimp.mavenreorganizer.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArtifactIndexTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void handsOutOneKeyPerCoordinate() {
+        ArtifactIndex index = new ArtifactIndex();
+        ArtifactKey forge = index.artifact("net.minecraftforge", "forge");
+        ArtifactKey installer = index.artifact(new String("net.minecraftforge"), "installer");
+
+        assertSame(forge, index.artifact(new String("net.minecraftforge"), new String("forge")));
+        assertSame(forge.groupId(), installer.groupId());
+        assertEquals("net/minecraftforge/forge", forge.path());
+
+        VersionKey release = index.version(forge, "1.0");
+        VersionKey snapshot = index.version(forge, "2.0-SNAPSHOT");
+        assertSame(release, index.version(forge, new String("1.0")));
+        assertFalse(release.isSnapshot());
+        assertTrue(snapshot.isSnapshot());
+        assertEquals("net/minecraftforge/forge/1.0", release.path());
+        assertEquals(new VersionKey(new ArtifactKey("net.minecraftforge", "forge"), "1.0", false), release);
+    }
+
+    @Test
+    public void handsOutOneKeyToConcurrentCallers() throws Exception {
+        ArtifactIndex index = new ArtifactIndex();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<VersionKey>> futures = executor.invokeAll(Collections.nCopies(64,
+                    () -> index.version(index.artifact(new String("net.minecraftforge"), "forge"), new String("1.0"))));
+            VersionKey first = futures.get(0).get();
+            for (Future<VersionKey> future : futures) {
+                assertSame(first, future.get());
+                assertSame(first.artifact(), future.get().artifact());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void filesOfAVersionShareItsKey() throws IOException {
+        Path artifactDir = Files.createDirectories(this.dir.resolve("net/minecraftforge/forge"));
+        Files.createFile(artifactDir.resolve("maven-metadata.xml"));
+        Path versionDir = Files.createDirectories(artifactDir.resolve("1.0"));
+
+        ArtifactIndex index = new ArtifactIndex();
+        ArtifactClassifier classifier = new ArtifactClassifier(this.dir, index);
+        classifier.enterDirectory(this.dir);
+        classifier.enterDirectory(this.dir.resolve("net"));
+        classifier.enterDirectory(this.dir.resolve("net/minecraftforge"));
+        classifier.enterDirectory(artifactDir);
+        classifier.enterDirectory(versionDir);
+        Artifact jar = classifier.classify(versionDir.resolve("forge-1.0.jar"));
+        Artifact pom = classifier.classify(versionDir.resolve("forge-1.0.pom"));
+
+        assertNotNull(jar);
+        assertSame(jar.coordinates(), pom.coordinates());
+        assertSame(index.version(index.artifact("net.minecraftforge", "forge"), "1.0"), jar.coordinates());
+        assertEquals(Artifact.createFromPath(this.dir, versionDir.resolve("forge-1.0.jar")), jar);
+    }
+}
@@ -0,0 +1,180 @@
+package me.sizableshrimp.mavenreorganizer.output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TarSinkTest {
+    private static final byte[] CONTENT = "content".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void writesOneArchivePerRepo() throws IOException {
+        Path output = this.dir.resolve("output");
+        Path input = input("forge-1.0.jar", CONTENT);
+        BasicFileAttributes attributes = Files.readAttributes(input, BasicFileAttributes.class);
+
+        try (TarSink sink = new TarSink(output)) {
+            sink.copy(this.dir, input, attributes, output.resolve("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.jar"));
+            sink.write(output.resolve("forge/releases/net/minecraftforge/forge/maven-metadata.xml"), "<metadata/>".getBytes(StandardCharsets.UTF_8));
+            sink.copy(this.dir, input, attributes, output.resolve("installer/releases/a/b/1.0/b-1.0.jar"));
+            sink.write(output.resolve("deleted_releases.txt"), "deleted".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<Entry> forge = read(output.resolve("forge" + TarSink.ARCHIVE_EXTENSION));
+        assertEquals(2, forge.size());
+        assertEquals("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.jar", forge.get(0).name());
+        assertArrayEquals(CONTENT, forge.get(0).data());
+        assertEquals(attributes.lastModifiedTime().toMillis() / 1000, forge.get(0).modified());
+        assertEquals("<metadata/>", new String(forge.get(1).data(), StandardCharsets.UTF_8));
+
+        List<Entry> installer = read(output.resolve("installer" + TarSink.ARCHIVE_EXTENSION));
+        assertEquals(1, installer.size());
+        assertEquals("installer/releases/a/b/1.0/b-1.0.jar", installer.get(0).name());
+
+        // Files directly in the output directory stay loose
+        assertEquals("deleted", Files.readString(output.resolve("deleted_releases.txt"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writesLongPaths() throws IOException {
+        Path output = this.dir.resolve("output");
+        // Fits in the ustar prefix and name fields
+        String prefixed = "forge/releases/" + "a".repeat(60) + '/' + "b".repeat(60) + "/1.0/file.jar";
+        // A last segment longer than the name field needs a PAX header
+        String pax = "forge/releases/a/" + "c".repeat(120) + ".jar";
+
+        try (TarSink sink = new TarSink(output)) {
+            sink.write(output.resolve(prefixed), CONTENT);
+            sink.write(output.resolve(pax), CONTENT);
+        }
+
+        List<Entry> entries = read(output.resolve("forge" + TarSink.ARCHIVE_EXTENSION));
+        assertEquals(List.of(prefixed, pax), entries.stream().map(Entry::name).toList());
+        for (Entry entry : entries) {
+            assertArrayEquals(CONTENT, entry.data());
+        }
+    }
+
+    @Test
+    public void linksWithinOneArchiveOnly() throws IOException {
+        Path output = this.dir.resolve("output");
+        Path first = output.resolve("forge/releases/a/b/1.0/b-1.0.jar");
+
+        try (TarSink sink = new TarSink(output)) {
+            sink.write(first, CONTENT);
+            assertTrue(sink.link(first, output.resolve("forge/releases/a/b/1.1/b-1.1.jar")));
+            assertFalse(sink.link(first, output.resolve("installer/releases/a/b/1.0/b-1.0.jar")));
+        }
+
+        List<Entry> entries = read(output.resolve("forge" + TarSink.ARCHIVE_EXTENSION));
+        assertEquals(2, entries.size());
+        assertEquals('1', entries.get(1).type());
+        assertEquals("forge/releases/a/b/1.0/b-1.0.jar", entries.get(1).linkName());
+        assertFalse(Files.exists(output.resolve("installer" + TarSink.ARCHIVE_EXTENSION)));
+    }
+
+    @Test
+    public void failsWhenTheInputChangesSize() throws IOException {
+        Path output = this.dir.resolve("output");
+        Path input = input("forge-1.0.jar", CONTENT);
+        BasicFileAttributes attributes = Files.readAttributes(input, BasicFileAttributes.class);
+        Files.write(input, Arrays.copyOf(CONTENT, 3));
+        Files.setLastModifiedTime(input, FileTime.fromMillis(0));
+
+        try (TarSink sink = new TarSink(output)) {
+            assertThrows(IOException.class, () -> sink.copy(this.dir, input, attributes, output.resolve("forge/releases/a/b/1.0/b-1.0.jar")));
+        }
+    }
+
+    private Path input(String name, byte[] content) throws IOException {
+        return Files.write(this.dir.resolve(name), content);
+    }
+
+    private record Entry(String name, char type, long modified, String linkName, byte[] data) {}
+
+    // Reads the subset of the format TarSink writes, checking every header checksum
+    private static List<Entry> read(Path archive) throws IOException {
+        byte[] bytes = Files.readAllBytes(archive);
+        assertEquals(0, bytes.length % 512);
+
+        List<Entry> entries = new ArrayList<>();
+        Map<String, String> pax = new HashMap<>();
+        int offset = 0;
+        while (true) {
+            byte[] header = Arrays.copyOfRange(bytes, offset, offset + 512);
+            offset += 512;
+            if (isZero(header))
+                break;
+
+            long checksum = 0;
+            for (int i = 0; i < 512; i++) {
+                checksum += i >= 148 && i < 156 ? ' ' : header[i] & 0xFF;
+            }
+            assertEquals(checksum, parseOctal(header, 148, 8));
+            assertEquals("ustar", string(header, 257, 6));
+
+            long size = parseOctal(header, 124, 12);
+            byte[] data = Arrays.copyOfRange(bytes, offset, offset + (int) size);
+            offset += (int) ((size + 511) / 512 * 512);
+
+            char type = (char) header[156];
+            if (type == 'x') {
+                for (String record : new String(data, StandardCharsets.UTF_8).split("\n")) {
+                    String keyValue = record.substring(record.indexOf(' ') + 1);
+                    assertEquals(record.getBytes(StandardCharsets.UTF_8).length + 1, Integer.parseInt(record.substring(0, record.indexOf(' '))));
+                    pax.put(keyValue.substring(0, keyValue.indexOf('=')), keyValue.substring(keyValue.indexOf('=') + 1));
+                }
+                continue;
+            }
+
+            String prefix = string(header, 345, 155);
+            String name = pax.containsKey("path") ? pax.get("path") : prefix.isEmpty() ? string(header, 0, 100) : prefix + '/' + string(header, 0, 100);
+            String linkName = pax.containsKey("linkpath") ? pax.get("linkpath") : string(header, 157, 100);
+            entries.add(new Entry(name, type, parseOctal(header, 136, 12), linkName.isEmpty() ? null : linkName, data));
+            pax.clear();
+        }
+
+        assertTrue(isZero(Arrays.copyOfRange(bytes, offset, offset + 512)));
+        return entries;
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) {
+            if (b != 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static String string(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long parseOctal(byte[] header, int offset, int length) {
+        return Long.parseLong(string(header, offset, length).trim(), 8);
+    }
+}
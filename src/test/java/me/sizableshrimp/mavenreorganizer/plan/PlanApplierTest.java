@@ -0,0 +1,118 @@
+package me.sizableshrimp.mavenreorganizer.plan;
+
+import me.sizableshrimp.mavenreorganizer.LinkMode;
+import me.sizableshrimp.mavenreorganizer.RunMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PlanApplierTest {
+    private static final int VERSIONS = 20;
+
+    @TempDir
+    Path dir;
+    private Path source;
+    private Path output;
+    private Path planPath;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.source = Files.createDirectories(this.dir.resolve("source"));
+        this.output = Files.createDirectories(this.dir.resolve("output"));
+        this.planPath = this.dir.resolve("plan");
+
+        try (PlanFile.Writer writer = new PlanFile.Writer(this.planPath, this.output)) {
+            for (int i = 0; i < VERSIONS; i++) {
+                // Stale files in the directories that are copied into, which are removed and leave their directory empty until the copy
+                String stale = "repo/a/b/" + i + "/b-old.jar";
+                write(this.output.resolve(stale), "stale");
+                writer.write(PlanFile.Entry.delete(stale));
+
+                String relativePath = "a/b/" + i + "/b-" + i + ".jar";
+                Path inputPath = write(this.source.resolve(relativePath), "jar " + i);
+                BasicFileAttributes attributes = Files.readAttributes(inputPath, BasicFileAttributes.class);
+                writer.write(PlanFile.Entry.copy(PlanFile.Action.COPY, "repo/" + relativePath, this.source.toAbsolutePath().toString(), relativePath,
+                        attributes.size(), attributes.lastModifiedTime().toMillis()));
+            }
+            writer.write(PlanFile.Entry.write("repo/a/b/maven-metadata.xml", "<metadata/>".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Test
+    public void appliesThePlan() throws IOException {
+        new PlanApplier(this.planPath, this.output, LinkMode.COPY, 4, 0, 1, false).run();
+
+        assertEquals(expected(), readOutput());
+        assertTrue(Files.exists(this.output.resolve(RunMetrics.REPORT_FILE_NAME)));
+    }
+
+    @Test
+    public void shardsApplyThePlanTogether() throws IOException {
+        for (int shard = 0; shard < 3; shard++) {
+            new PlanApplier(this.planPath, this.output, LinkMode.COPY, 2, shard, 3, false).run();
+            assertTrue(Files.exists(this.output.resolve(RunMetrics.REPORT_FILE_NAME.replace(".json", "-shard" + shard + ".json"))));
+        }
+
+        assertEquals(expected(), readOutput());
+    }
+
+    @Test
+    public void shardsDoNotOverlap() throws IOException {
+        new PlanApplier(this.planPath, this.output, LinkMode.COPY, 1, 0, 2, false).run();
+        Map<String, String> first = readOutput();
+        for (String destination : first.keySet()) {
+            if (destination.endsWith("b-old.jar"))
+                continue;
+            // Applying the other shard must not touch anything the first one did
+            Files.writeString(this.output.resolve(destination), "first", StandardCharsets.UTF_8);
+        }
+
+        new PlanApplier(this.planPath, this.output, LinkMode.COPY, 1, 1, 2, false).run();
+        Map<String, String> both = readOutput();
+        for (String destination : first.keySet()) {
+            if (!destination.endsWith("b-old.jar"))
+                assertEquals("first", both.get(destination), destination);
+        }
+        assertFalse(first.isEmpty());
+        assertEquals(expected().keySet(), both.keySet());
+    }
+
+    private static Map<String, String> expected() {
+        Map<String, String> expected = new TreeMap<>();
+        for (int i = 0; i < VERSIONS; i++) {
+            expected.put("repo/a/b/" + i + "/b-" + i + ".jar", "jar " + i);
+        }
+        expected.put("repo/a/b/maven-metadata.xml", "<metadata/>");
+        return expected;
+    }
+
+    private Map<String, String> readOutput() throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> stream = Files.walk(this.output)) {
+            for (Path path : (Iterable<Path>) stream.filter(Files::isRegularFile)::iterator) {
+                String relativePath = this.output.relativize(path).toString().replace('\\', '/');
+                if (!relativePath.startsWith("reorganizer-report"))
+                    files.put(relativePath, Files.readString(path, StandardCharsets.UTF_8));
+            }
+        }
+        return files;
+    }
+
+    private static Path write(Path path, String content) throws IOException {
+        Files.createDirectories(path.getParent());
+        return Files.writeString(path, content, StandardCharsets.UTF_8);
+    }
+}
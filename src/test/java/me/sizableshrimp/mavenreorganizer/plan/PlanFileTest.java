@@ -0,0 +1,69 @@
+package me.sizableshrimp.mavenreorganizer.plan;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PlanFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void readsEveryActionBackInOrder() throws IOException {
+        Path planPath = this.dir.resolve("plan");
+        Path output = this.dir.resolve("output");
+        List<PlanFile.Entry> entries = List.of(
+                PlanFile.Entry.copy(PlanFile.Action.COPY, "forge/releases/a/b/1.0/b-1.0.jar", "/src/releases", "a/b/1.0/b-1.0.jar", 123, 1_600_000_000_000L),
+                PlanFile.Entry.copy(PlanFile.Action.SKIP, "forge/releases/a/b/1.0/b-1.0.pom", "/src/releases", "a/b/1.0/b-1.0.pom", 0, 0),
+                PlanFile.Entry.move("forge/releases/a/b/1.1/b-1.1.jar", "quarantine/releases/a/b/1.1/b-1.1.jar"),
+                PlanFile.Entry.delete("forge/releases/a/b/0.9/b-0.9.jar"),
+                PlanFile.Entry.write("forge/releases/a/b/maven-metadata.xml", "<metadata/>".getBytes(StandardCharsets.UTF_8)),
+                PlanFile.Entry.write("forge/releases/a/b/empty", new byte[0]));
+
+        try (PlanFile.Writer writer = new PlanFile.Writer(planPath, output)) {
+            for (PlanFile.Entry entry : entries) {
+                writer.write(entry);
+            }
+        }
+
+        List<PlanFile.Entry> read = new ArrayList<>();
+        try (PlanFile.Reader reader = new PlanFile.Reader(planPath)) {
+            assertEquals(output.toAbsolutePath().toString(), reader.getOutputFolder());
+            PlanFile.Entry entry;
+            while ((entry = reader.next()) != null) {
+                read.add(entry);
+            }
+        }
+
+        assertEquals(entries.size(), read.size());
+        for (int i = 0; i < entries.size(); i++) {
+            PlanFile.Entry expected = entries.get(i);
+            PlanFile.Entry actual = read.get(i);
+            assertEquals(expected.action(), actual.action());
+            assertEquals(expected.destination(), actual.destination());
+            assertEquals(expected.folder(), actual.folder());
+            assertEquals(expected.source(), actual.source());
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected.modified(), actual.modified());
+            assertEquals(expected.target(), actual.target());
+            if (expected.data() != null)
+                assertArrayEquals(expected.data(), actual.data());
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        Path planPath = Files.write(this.dir.resolve("plan"), "not a plan".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> new PlanFile.Reader(planPath).close());
+    }
+}
@@ -0,0 +1,68 @@
+package me.sizableshrimp.mavenreorganizer.plan;
+
+import me.sizableshrimp.mavenreorganizer.LinkMode;
+import me.sizableshrimp.mavenreorganizer.MavenReorganizer;
+import me.sizableshrimp.mavenreorganizer.MetadataCache;
+import me.sizableshrimp.mavenreorganizer.OutputFormat;
+import me.sizableshrimp.mavenreorganizer.ReorganizerOptions;
+import me.sizableshrimp.mavenreorganizer.SyncManifest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PlanSinkTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void planningLeavesTheOutputAlone() throws IOException {
+        Path releases = Files.createDirectories(this.dir.resolve("releases"));
+        Path proxy = Files.createDirectories(this.dir.resolve("proxy"));
+        Path output = Files.createDirectories(this.dir.resolve("output"));
+        Path rules = Files.writeString(this.dir.resolve("rules.txt"), "releases forge net.minecraftforge\n", StandardCharsets.UTF_8);
+        Path planPath = this.dir.resolve("plan");
+
+        Path artifactFolder = Files.createDirectories(releases.resolve("net/minecraftforge/forge"));
+        Files.writeString(artifactFolder.resolve("maven-metadata.xml"), """
+                <metadata>
+                  <groupId>net.minecraftforge</groupId>
+                  <artifactId>forge</artifactId>
+                  <versioning>
+                    <versions>
+                      <version>1.0</version>
+                    </versions>
+                  </versioning>
+                </metadata>
+                """, StandardCharsets.UTF_8);
+        Files.writeString(Files.createDirectories(artifactFolder.resolve("1.0")).resolve("forge-1.0.jar"), "jar", StandardCharsets.UTF_8);
+
+        ReorganizerOptions options = new ReorganizerOptions(false, false, 1, 1, LinkMode.COPY, OutputFormat.DIRECTORY,
+                true, false, true, 0, rules, 0, 0, planPath);
+        new MavenReorganizer(releases, proxy, output, options).run();
+
+        // The run state is carried in the plan, so it only replaces the old state once the plan is applied
+        assertEquals(List.of(), list(output));
+        assertTrue(Files.exists(planPath));
+
+        new PlanApplier(planPath, output, LinkMode.COPY, 1, 0, 1, false).run();
+
+        assertEquals("jar", Files.readString(output.resolve("forge/releases/net/minecraftforge/forge/1.0/forge-1.0.jar"), StandardCharsets.UTF_8));
+        assertTrue(Files.exists(output.resolve(SyncManifest.FILE_NAME)));
+        assertTrue(Files.exists(output.resolve(MetadataCache.FILE_NAME)));
+    }
+
+    private static List<Path> list(Path folder) throws IOException {
+        try (Stream<Path> stream = Files.list(folder)) {
+            return stream.toList();
+        }
+    }
+}